@@ -0,0 +1,176 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer.util;
+
+import jdk.jfr.*;
+
+/**
+ * Java Flight Recorder events of the transformer phases, emitted on Java 11 and newer. Events are only created when
+ * a recording has them enabled, which is checked without allocating.
+ */
+public class TransformerEvents {
+    private static final String CATEGORY = "Architectury Transformer";
+    
+    public static Span phase(String phase, String subject) {
+        if (!FlightRecorder.isInitialized() || !Types.PHASE.isEnabled()) return Span.NONE;
+        PhaseEvent event = new PhaseEvent();
+        event.phase = phase;
+        event.subject = subject;
+        return new EventSpan(event);
+    }
+    
+    public static Span classEdit(String transformer, String className, int inputSize) {
+        if (!FlightRecorder.isInitialized() || !Types.CLASS_EDIT.isEnabled()) return Span.NONE;
+        ClassEditEvent event = new ClassEditEvent();
+        event.transformer = transformer;
+        event.className = className;
+        event.inputSize = inputSize;
+        return new EventSpan(event) {
+            @Override
+            public void setOutputSize(int outputSize) {
+                event.outputSize = outputSize;
+            }
+        };
+    }
+    
+    public static Span runtimeTransform(String className, int inputSize) {
+        if (!FlightRecorder.isInitialized() || !Types.RUNTIME_TRANSFORM.isEnabled()) return Span.NONE;
+        RuntimeTransformEvent event = new RuntimeTransformEvent();
+        event.className = className;
+        event.inputSize = inputSize;
+        return new EventSpan(event) {
+            @Override
+            public void setOutputSize(int outputSize) {
+                event.outputSize = outputSize;
+            }
+        };
+    }
+    
+    public static Span redefine(String input, int classes) {
+        if (!FlightRecorder.isInitialized() || !Types.REDEFINE.isEnabled()) return Span.NONE;
+        RedefineEvent event = new RedefineEvent();
+        event.input = input;
+        event.classes = classes;
+        return new EventSpan(event);
+    }
+    
+    public static class Span implements AutoCloseable {
+        public static final Span NONE = new Span();
+        
+        protected Span() {
+        }
+        
+        public void setOutputSize(int outputSize) {
+        }
+        
+        public void end() {
+        }
+        
+        @Override
+        public void close() {
+        }
+    }
+    
+    private static class EventSpan extends Span {
+        private final Event event;
+        private boolean ended = false;
+        
+        private EventSpan(Event event) {
+            this.event = event;
+            event.begin();
+        }
+        
+        @Override
+        public void end() {
+            if (!ended) {
+                event.end();
+                ended = true;
+            }
+        }
+        
+        @Override
+        public void close() {
+            end();
+            event.commit();
+        }
+    }
+    
+    // Only loaded once a recording ever started, registering the event types
+    private static class Types {
+        private static final EventType PHASE = EventType.getEventType(PhaseEvent.class);
+        private static final EventType CLASS_EDIT = EventType.getEventType(ClassEditEvent.class);
+        private static final EventType RUNTIME_TRANSFORM = EventType.getEventType(RuntimeTransformEvent.class);
+        private static final EventType REDEFINE = EventType.getEventType(RedefineEvent.class);
+    }
+    
+    @Name("dev.architectury.transformer.Phase")
+    @Label("Transformer Phase")
+    @Category(CATEGORY)
+    private static class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+        @Label("Subject")
+        String subject;
+    }
+    
+    @Name("dev.architectury.transformer.ClassEdit")
+    @Label("Class Edit")
+    @Category(CATEGORY)
+    private static class ClassEditEvent extends Event {
+        @Label("Transformer")
+        String transformer;
+        @Label("Class")
+        String className;
+        @Label("Input Size")
+        @DataAmount
+        int inputSize;
+        @Label("Output Size")
+        @DataAmount
+        int outputSize;
+    }
+    
+    @Name("dev.architectury.transformer.RuntimeTransform")
+    @Label("Runtime Class Transform")
+    @Category(CATEGORY)
+    private static class RuntimeTransformEvent extends Event {
+        @Label("Class")
+        String className;
+        @Label("Input Size")
+        @DataAmount
+        int inputSize;
+        @Label("Output Size")
+        @DataAmount
+        int outputSize;
+    }
+    
+    @Name("dev.architectury.transformer.Redefine")
+    @Label("Class Redefinition")
+    @Category(CATEGORY)
+    private static class RedefineEvent extends Event {
+        @Label("Input")
+        String input;
+        @Label("Classes")
+        int classes;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer.benchmark;
+
+import dev.architectury.transformer.transformers.ClasspathProvider;
+import dev.architectury.transformer.transformers.classpath.ReadClasspathProviderImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a classpath of generated jars from scratch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ClasspathBenchmark {
+    @Param({"10"})
+    public int jars;
+    @Param({"1000"})
+    public int classes;
+    private Path directory;
+    private ClasspathProvider provider;
+    
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        directory = Files.createTempDirectory("architectury-transformer-jmh");
+        List<Path> paths = new ArrayList<>();
+        for (int i = 0; i < jars; i++) {
+            paths.add(SyntheticJar.writeJar(directory, "classpath" + i + ".jar", classes, 4));
+        }
+        provider = ClasspathProvider.of(paths);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Benchmarks.deleteRecursively(directory);
+    }
+    
+    @Benchmark
+    public byte[][] provide() {
+        return new ReadClasspathProviderImpl(provider).provide();
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer.benchmark;
+
+import dev.architectury.transformer.handler.TransformerClassWriter;
+import dev.architectury.transformer.input.FileAccess;
+import dev.architectury.transformer.input.MemoryFileAccess;
+import dev.architectury.transformer.transformers.ClasspathProvider;
+import dev.architectury.transformer.transformers.classpath.ReadClasspathProvider;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves common super classes of generated classes, found in the output and on the classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CommonSuperClassBenchmark {
+    @Param({"1000"})
+    public int classes;
+    private Path directory;
+    private ProbeWriter outputWriter;
+    private ProbeWriter classpathWriter;
+    
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        directory = Files.createTempDirectory("architectury-transformer-jmh");
+        Path jar = SyntheticJar.writeJar(directory, "classpath.jar", classes, 1);
+        ReadClasspathProvider classpath = ReadClasspathProvider.of(ClasspathProvider.of(jar));
+        outputWriter = new ProbeWriter(ReadClasspathProvider.of(ClasspathProvider.of()), MemoryFileAccess.of(SyntheticJar.generate(classes, 1)));
+        classpathWriter = new ProbeWriter(classpath, MemoryFileAccess.of());
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Benchmarks.deleteRecursively(directory);
+    }
+    
+    @Benchmark
+    public void fromOutput(Blackhole blackhole) {
+        resolveAll(outputWriter, blackhole);
+    }
+    
+    @Benchmark
+    public void fromClasspath(Blackhole blackhole) {
+        resolveAll(classpathWriter, blackhole);
+    }
+    
+    private void resolveAll(ProbeWriter writer, Blackhole blackhole) {
+        for (int i = 1; i < classes; i += 2) {
+            blackhole.consume(writer.commonSuperClass(SyntheticJar.className(i), SyntheticJar.className(i - 1)));
+            blackhole.consume(writer.commonSuperClass(SyntheticJar.className(i), "java/util/ArrayList"));
+        }
+    }
+    
+    private static class ProbeWriter extends TransformerClassWriter {
+        private ProbeWriter(ReadClasspathProvider classpath, FileAccess output) {
+            super(classpath, output, 0);
+        }
+        
+        private String commonSuperClass(String type1, String type2) {
+            return getCommonSuperClass(type1, type2);
+        }
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer.benchmark;
+
+import dev.architectury.transformer.util.ReproducibleOutput;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates deterministic mod-like jars, with configurable counts of classes, annotated members, nested jars,
+ * mixin configs and refmaps. Annotated members are spread evenly over the classes.
+ */
+public final class CorpusGenerator {
+    private static final int CHAIN_LENGTH = 8;
+    private final Spec spec;
+    
+    private CorpusGenerator(Spec spec) {
+        this.spec = spec;
+    }
+    
+    public static Map<String, byte[]> generate(Spec spec) throws IOException {
+        return new CorpusGenerator(spec).generate();
+    }
+    
+    public static Path writeJar(Path directory, String name, Spec spec) throws IOException {
+        Files.createDirectories(directory);
+        Path path = directory.resolve(name);
+        Files.write(path, ReproducibleOutput.toZip(generate(spec)));
+        return path;
+    }
+    
+    public static String className(int index) {
+        return "bench/pkg" + (index % 10) + "/Class" + index;
+    }
+    
+    public static String superName(int index) {
+        return index % CHAIN_LENGTH == 0 ? "java/lang/Object" : className(index - 1);
+    }
+    
+    public static String refmapName(int index) {
+        return index == 0 ? "bench-refmap.json" : "bench-refmap-" + index + ".json";
+    }
+    
+    /**
+     * Writes tiny v2 mappings with the named, intermediary and srg namespaces, covering the names referenced by the refmaps.
+     */
+    public static void writeMappings(Path path, Spec spec) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write("tiny\t2\t0\tnamed\tintermediary\tsrg\n");
+            for (int i = 0; i < spec.refmapEntries; i++) {
+                writer.write("c\tnet/minecraft/class_" + i + "\tnet/minecraft/class_" + i + "\tnet/minecraft/src/C_" + i + "_\n");
+                writer.write("\tm\t()V\tmethod_" + i + "\tmethod_" + i + "\tm_" + i + "_\n");
+                writer.write("\tf\tI\tfield_" + i + "\tfield_" + i + "\tf_" + i + "_\n");
+            }
+        }
+    }
+    
+    private Map<String, byte[]> generate() throws IOException {
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        files.put("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < spec.mixinConfigs; i++) {
+            String refmap = spec.refmaps > 0 ? ",\"refmap\":\"" + refmapName(i % spec.refmaps) + "\"" : "";
+            files.put("bench" + i + ".mixins.json", ("{\"required\":true,\"package\":\"bench.mixin\",\"mixins\":[\"Mixin" + i + "\"]" + refmap + "}")
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        for (int i = 0; i < spec.refmaps; i++) {
+            files.put(refmapName(i), generateRefmap(i));
+        }
+        Random random = new Random(spec.classes * 31L + spec.methods);
+        for (int i = 0; i < spec.classes; i++) {
+            files.put(className(i) + ".class", generateClass(i));
+            if (spec.assetEvery > 0 && i % spec.assetEvery == 0) {
+                byte[] asset = new byte[1024];
+                random.nextBytes(asset);
+                files.put("assets/bench/textures/" + i + ".png", asset);
+            }
+        }
+        for (int i = 0; i < spec.nestedJars; i++) {
+            Spec nested = spec.copy();
+            nested.classes = Math.max(1, spec.classes / 10);
+            nested.nestedJars = 0;
+            nested.scale(nested.classes / (double) Math.max(1, spec.classes));
+            files.put("META-INF/jars/nested" + i + ".jar", ReproducibleOutput.toZip(generate(nested)));
+        }
+        return files;
+    }
+    
+    private byte[] generateRefmap(int index) {
+        StringBuilder mappings = new StringBuilder();
+        for (int i = 0; i < spec.refmapEntries; i++) {
+            if (i > 0) mappings.append(',');
+            mappings.append("\"method_").append(i).append("\":\"Lnet/minecraft/class_").append(i).append(";method_").append(i).append("()V\",");
+            mappings.append("\"field_").append(i).append("\":\"Lnet/minecraft/class_").append(i).append(";field_").append(i).append(":I\"");
+        }
+        String block = "{\"bench/mixin/Mixin" + index + "\":{" + mappings + "}}";
+        return ("{\"mappings\":" + block + ",\"data\":{\"named:intermediary\":" + block + "}}").getBytes(StandardCharsets.UTF_8);
+    }
+    
+    private byte[] generateClass(int index) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS) {
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
+                return "java/lang/Object";
+            }
+        };
+        String name = className(index);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name, null, superName(index), null);
+        if (picked(index, spec.environmentClasses, spec.classes)) {
+            AnnotationVisitor environment = writer.visitAnnotation("Lnet/fabricmc/api/Environment;", false);
+            environment.visitEnum("value", "Lnet/fabricmc/api/EnvType;", "CLIENT");
+            environment.visitEnd();
+        }
+        if (picked(index, spec.forgeEventClasses, spec.classes)) {
+            writer.visitAnnotation("Ldev/architectury/annotations/ForgeEvent;", false).visitEnd();
+        }
+        writer.visitField(Opcodes.ACC_PRIVATE, "counter", "I", null, null).visitEnd();
+        
+        MethodVisitor init = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        init.visitCode();
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitMethodInsn(Opcodes.INVOKESPECIAL, superName(index), "<init>", "()V", false);
+        init.visitInsn(Opcodes.RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+        
+        int totalMethods = spec.classes * spec.methods;
+        for (int i = 0; i < spec.methods; i++) {
+            int methodIndex = index * spec.methods + i;
+            boolean expectPlatform = picked(methodIndex, spec.expectPlatformMethods, totalMethods);
+            MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC | (expectPlatform ? Opcodes.ACC_STATIC : 0), "method" + i, "(I)I", null, null);
+            if (expectPlatform) {
+                method.visitAnnotation("Ldev/architectury/injectables/annotations/ExpectPlatform;", false).visitEnd();
+            } else if (picked(totalMethods - 1 - methodIndex, spec.platformOnlyMethods, totalMethods)) {
+                // Counted from the other end, so they don't all land on @ExpectPlatform methods
+                AnnotationVisitor platformOnly = method.visitAnnotation("Ldev/architectury/injectables/annotations/PlatformOnly;", false);
+                AnnotationVisitor platforms = platformOnly.visitArray("value");
+                platforms.visit(null, methodIndex % 2 == 0 ? "forge" : "fabric");
+                platforms.visitEnd();
+                platformOnly.visitEnd();
+            }
+            method.visitCode();
+            writeBody(method, expectPlatform ? 0 : 1, methodIndex);
+            method.visitMaxs(0, 0);
+            method.visitEnd();
+        }
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+    
+    /**
+     * A loop with a branch, so frames are needed, and references to classes renamed by the transformers.
+     */
+    private static void writeBody(MethodVisitor method, int firstLocal, int index) {
+        Label loop = new Label();
+        Label end = new Label();
+        int sum = firstLocal + 1;
+        method.visitInsn(Opcodes.ICONST_0);
+        method.visitVarInsn(Opcodes.ISTORE, sum);
+        method.visitLabel(loop);
+        method.visitVarInsn(Opcodes.ILOAD, firstLocal);
+        method.visitJumpInsn(Opcodes.IFLE, end);
+        method.visitVarInsn(Opcodes.ILOAD, sum);
+        method.visitVarInsn(Opcodes.ILOAD, firstLocal);
+        method.visitInsn(Opcodes.IADD);
+        method.visitVarInsn(Opcodes.ISTORE, sum);
+        method.visitIincInsn(firstLocal, -1);
+        method.visitJumpInsn(Opcodes.GOTO, loop);
+        method.visitLabel(end);
+        if (index % 3 == 0) {
+            method.visitFieldInsn(Opcodes.GETSTATIC, "net/minecraftforge/common/MinecraftForge", "EVENT_BUS", "Lnet/minecraftforge/eventbus/api/IEventBus;");
+            method.visitInsn(Opcodes.POP);
+        }
+        if (index % 6 == 0) {
+            method.visitMethodInsn(Opcodes.INVOKESTATIC, "dev/architectury/injectables/targets/ArchitecturyTarget", "getCurrentTarget", "()Ljava/lang/String;", false);
+            method.visitInsn(Opcodes.POP);
+        }
+        method.visitVarInsn(Opcodes.ILOAD, sum);
+        method.visitInsn(Opcodes.IRETURN);
+    }
+    
+    /**
+     * Returns whether the index is one of {@code count} indices spread evenly over {@code total}.
+     */
+    private static boolean picked(int index, int count, int total) {
+        if (count <= 0 || total <= 0) return false;
+        if (count >= total) return true;
+        return (long) index * count / total != (long) (index + 1) * count / total;
+    }
+    
+    /**
+     * What to generate, parsed from {@code --key=value} arguments named after the fields.
+     */
+    public static final class Spec {
+        public int classes = 1000;
+        public int methods = 8;
+        public int expectPlatformMethods = 2000;
+        public int platformOnlyMethods = 1000;
+        public int forgeEventClasses = 90;
+        public int environmentClasses = 140;
+        public int nestedJars = 0;
+        public int mixinConfigs = 1;
+        public int refmaps = 0;
+        public int refmapEntries = 100;
+        public int assetEvery = 16;
+        
+        public static Spec parse(String... args) {
+            Spec spec = new Spec();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || !arg.contains("=")) continue;
+                String key = arg.substring(2, arg.indexOf('='));
+                try {
+                    Spec.class.getField(key).setInt(spec, Integer.parseInt(arg.substring(arg.indexOf('=') + 1)));
+                } catch (NoSuchFieldException ignored) {
+                    // Not a corpus option, left for the caller
+                } catch (IllegalAccessException exception) {
+                    throw new RuntimeException(exception);
+                }
+            }
+            return spec;
+        }
+        
+        public Spec copy() {
+            Spec copy = new Spec();
+            for (java.lang.reflect.Field field : Spec.class.getFields()) {
+                try {
+                    field.setInt(copy, field.getInt(this));
+                } catch (IllegalAccessException exception) {
+                    throw new RuntimeException(exception);
+                }
+            }
+            return copy;
+        }
+        
+        private void scale(double factor) {
+            expectPlatformMethods = (int) (expectPlatformMethods * factor);
+            platformOnlyMethods = (int) (platformOnlyMethods * factor);
+            forgeEventClasses = (int) (forgeEventClasses * factor);
+            environmentClasses = (int) (environmentClasses * factor);
+        }
+        
+        @Override
+        public String toString() {
+            return classes + " class(es) x " + methods + " method(s), " + nestedJars + " nested jar(s), " + mixinConfigs + " mixin config(s), " + refmaps + " refmap(s)";
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer.benchmark;
+
+import dev.architectury.transformer.input.DirectoryFileAccess;
+import dev.architectury.transformer.input.FileAccess;
+import dev.architectury.transformer.input.JarFileAccess;
+import dev.architectury.transformer.input.MemoryFileAccess;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Walks, reads and writes every file of a generated jar through each {@link FileAccess} implementation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileAccessBenchmark {
+    @Param({"1000"})
+    public int classes;
+    @Param({"jar", "memory", "directory"})
+    public String access;
+    private Map<String, byte[]> files;
+    private Path directory;
+    private FileAccess output;
+    
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        files = SyntheticJar.generate(classes, 4);
+    }
+    
+    @Setup(Level.Invocation)
+    public void open() throws Exception {
+        directory = Files.createTempDirectory("architectury-transformer-jmh");
+        switch (access) {
+            case "jar":
+                output = JarFileAccess.of(SyntheticJar.writeJar(directory, "bench.jar", classes, 4));
+                break;
+            case "memory":
+                output = MemoryFileAccess.of(files);
+                break;
+            case "directory":
+                for (Map.Entry<String, byte[]> entry : files.entrySet()) {
+                    Path path = directory.resolve(entry.getKey());
+                    Files.createDirectories(path.getParent());
+                    Files.write(path, entry.getValue());
+                }
+                output = DirectoryFileAccess.of(directory);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown access " + access);
+        }
+    }
+    
+    @TearDown(Level.Invocation)
+    public void close() throws Exception {
+        output.close();
+        Benchmarks.deleteRecursively(directory);
+    }
+    
+    @Benchmark
+    public void walk(Blackhole blackhole) throws Exception {
+        output.handle(path -> blackhole.consume(path));
+    }
+    
+    @Benchmark
+    public void read(Blackhole blackhole) throws Exception {
+        for (String path : files.keySet()) {
+            blackhole.consume(output.getFile(path));
+        }
+    }
+    
+    @Benchmark
+    public void write() throws Exception {
+        for (Map.Entry<String, byte[]> entry : files.entrySet()) {
+            output.modifyFile(entry.getKey(), entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer.benchmark;
+
+import dev.architectury.transformer.Transformer;
+import dev.architectury.transformer.handler.SimpleTransformerHandler;
+import dev.architectury.transformer.input.MemoryFileAccess;
+import dev.architectury.transformer.transformers.*;
+import dev.architectury.transformer.transformers.base.edit.SimpleTransformerContext;
+import dev.architectury.transformer.transformers.classpath.ReadClasspathProvider;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs {@link SimpleTransformerHandler#handle} over a generated jar, per builtin transformer and with all of them.
+ * Transformers needing mapping files are left out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class HandlerBenchmark {
+    @Param({"1000"})
+    public int classes;
+    @Param({"8"})
+    public int methods;
+    @Param({"TransformExpectPlatform", "TransformPlatformOnly", "TransformForgeAnnotations", "TransformNeoForgeAnnotations",
+            "TransformForgeLikeToNeoForge", "RemapInjectables", "GenerateFakeFabricMod", "GenerateFakeForgeMod", "FixForgeMixin", "combined"})
+    public String transformer;
+    private byte[] jar;
+    private ReadClasspathProvider classpath;
+    private Supplier<List<Transformer>> transformers;
+    private MemoryFileAccess output;
+    
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        System.setProperty(BuiltinProperties.PLATFORM_NAME, "forge");
+        System.setProperty(BuiltinProperties.UNIQUE_IDENTIFIER, "bench");
+        jar = SyntheticJar.generateJar(classes, methods);
+        classpath = ReadClasspathProvider.of(ClasspathProvider.of());
+        transformers = transformer.equals("combined") ? HandlerBenchmark::combined : () -> Collections.singletonList(create(transformer));
+    }
+    
+    @Setup(Level.Invocation)
+    public void open() throws Exception {
+        output = MemoryFileAccess.ofZipFile(jar);
+    }
+    
+    @Benchmark
+    public MemoryFileAccess handle() throws Exception {
+        try (SimpleTransformerHandler handler = new SimpleTransformerHandler(classpath, new SimpleTransformerContext(args -> {}, true, false, true), false)) {
+            handler.handle("bench.jar", output, transformers.get());
+        }
+        return output;
+    }
+    
+    private static List<Transformer> combined() {
+        List<Transformer> transformers = new ArrayList<>();
+        for (String name : Arrays.asList("TransformForgeLikeToNeoForge", "RemapInjectables", "TransformExpectPlatform", "TransformPlatformOnly",
+                "TransformForgeAnnotations", "GenerateFakeForgeMod", "FixForgeMixin")) {
+            transformers.add(create(name));
+        }
+        return transformers;
+    }
+    
+    private static Transformer create(String name) {
+        switch (name) {
+            case "TransformExpectPlatform":
+                return new TransformExpectPlatform();
+            case "TransformPlatformOnly":
+                return new TransformPlatformOnly();
+            case "TransformForgeAnnotations":
+                return new TransformForgeAnnotations();
+            case "TransformNeoForgeAnnotations":
+                return new TransformNeoForgeAnnotations();
+            case "TransformForgeLikeToNeoForge":
+                return new TransformForgeLikeToNeoForge();
+            case "RemapInjectables":
+                return new RemapInjectables();
+            case "GenerateFakeFabricMod":
+                return new GenerateFakeFabricMod();
+            case "GenerateFakeForgeMod":
+                return new GenerateFakeForgeMod();
+            case "FixForgeMixin":
+                return new FixForgeMixin();
+            default:
+                throw new IllegalArgumentException("Unknown transformer " + name);
+        }
+    }
+}
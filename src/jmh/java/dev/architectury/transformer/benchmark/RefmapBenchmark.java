@@ -0,0 +1,81 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer.benchmark;
+
+import dev.architectury.transformer.transformers.RefmapStreamRemapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remaps a refmap whose mixins target the same members under different keys, as injectors of many mixins do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RefmapBenchmark {
+    @Param({"100"})
+    public int mixins;
+    @Param({"20"})
+    public int targets;
+    private byte[] refmap;
+    
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        StringBuilder mappings = new StringBuilder("{");
+        for (int mixin = 0; mixin < mixins; mixin++) {
+            if (mixin > 0) mappings.append(',');
+            mappings.append("\"bench/mixin/Mixin").append(mixin).append("\":{");
+            for (int target = 0; target < targets; target++) {
+                if (target > 0) mappings.append(',');
+                mappings.append("\"inject").append(mixin).append('_').append(target).append("\":\"Lnet/minecraft/class_").append(target)
+                        .append(";method_").append(target).append("()V\"");
+            }
+            mappings.append('}');
+        }
+        mappings.append('}');
+        refmap = ("{\"mappings\":" + mappings + ",\"data\":{\"named:intermediary\":" + mappings + "}}").getBytes(StandardCharsets.UTF_8);
+        
+        // The memo is keyed by reference, so the keys differing per mixin must not defeat it
+        RefmapStreamRemapper remapper = newRemapper();
+        remapper.remap(refmap);
+        if (remapper.getResolvedReferences() != targets || remapper.getReferences() != 2 * mixins * targets) {
+            throw new IllegalStateException("Expected " + targets + " resolved of " + 2 * mixins * targets + " references, got "
+                                            + remapper.getResolvedReferences() + " of " + remapper.getReferences());
+        }
+    }
+    
+    @Benchmark
+    public byte[] remap() throws Exception {
+        return newRemapper().remap(refmap);
+    }
+    
+    private static RefmapStreamRemapper newRemapper() {
+        return new RefmapStreamRemapper((key, reference) -> reference.replace("method_", "m_"), "named:intermediary", "searge");
+    }
+}
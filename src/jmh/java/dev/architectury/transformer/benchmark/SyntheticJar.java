@@ -0,0 +1,70 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer.benchmark;
+
+import dev.architectury.transformer.util.ReproducibleOutput;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Generates deterministic jars for the benchmarks, with the default share of annotated members of
+ * {@link CorpusGenerator} for the given size.
+ */
+public final class SyntheticJar {
+    private SyntheticJar() {
+    }
+    
+    public static Map<String, byte[]> generate(int classes, int methods) throws IOException {
+        return CorpusGenerator.generate(spec(classes, methods));
+    }
+    
+    public static byte[] generateJar(int classes, int methods) throws IOException {
+        return ReproducibleOutput.toZip(generate(classes, methods));
+    }
+    
+    public static Path writeJar(Path directory, String name, int classes, int methods) throws IOException {
+        Files.createDirectories(directory);
+        Path path = directory.resolve(name);
+        Files.write(path, generateJar(classes, methods));
+        return path;
+    }
+    
+    public static String className(int index) {
+        return CorpusGenerator.className(index);
+    }
+    
+    private static CorpusGenerator.Spec spec(int classes, int methods) {
+        CorpusGenerator.Spec spec = new CorpusGenerator.Spec();
+        spec.expectPlatformMethods = classes * methods / 4;
+        spec.platformOnlyMethods = classes * methods / 8;
+        spec.forgeEventClasses = classes / 11;
+        spec.environmentClasses = classes / 7;
+        spec.classes = classes;
+        spec.methods = methods;
+        return spec;
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import dev.architectury.transformer.Transform;
+import dev.architectury.transformer.Transformer;
+import dev.architectury.transformer.handler.TransformerScheduler;
+import dev.architectury.transformer.transformers.*;
+import dev.architectury.transformer.util.MemoryBudget;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs {@link Transform#runTransformers(Path, Path, List)} over a generated corpus for every platform preset, and
+ * reports classes per second, peak heap and the time spent in each scheduler step as JSON.
+ * <p>
+ * With {@code --baseline=<file>} the results are compared against a previous report, failing when the throughput
+ * drops or the peak heap grows by more than {@code --threshold} (a fraction, 0.1 by default). The baseline is only
+ * meaningful on the machine it was recorded on, and is (re)written with {@code --update-baseline}.
+ * <p>
+ * The corpus is configured with the {@link CorpusGenerator.Spec} fields, e.g. {@code --classes=5000 --nestedJars=4}.
+ */
+public final class ThroughputHarness {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private final Map<String, LongAdder> phases = new ConcurrentHashMap<>();
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) throw new IllegalArgumentException("Unknown argument: " + arg);
+            int index = arg.indexOf('=');
+            options.put(index == -1 ? arg.substring(2) : arg.substring(2, index), index == -1 ? "true" : arg.substring(index + 1));
+        }
+        CorpusGenerator.Spec spec = CorpusGenerator.Spec.parse(args);
+        Path workDirectory = Paths.get(options.getOrDefault("work-dir", "build/tmp/throughput"));
+        List<String> presets = Arrays.asList(options.getOrDefault("presets", "fabric,quilt,forge,neoforge").split(","));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "2"));
+        int iterations = Integer.parseInt(options.getOrDefault("iterations", "5"));
+        double threshold = Double.parseDouble(options.getOrDefault("threshold", "0.1"));
+        
+        JsonObject report = new ThroughputHarness().run(spec, workDirectory, presets, warmup, iterations);
+        String json = GSON.toJson(report);
+        System.out.println(json);
+        if (options.containsKey("output")) {
+            write(Paths.get(options.get("output")), json);
+        }
+        
+        if (options.containsKey("baseline")) {
+            Path baseline = Paths.get(options.get("baseline"));
+            if (options.containsKey("update-baseline")) {
+                write(baseline, json);
+                System.out.println("Updated baseline " + baseline);
+            } else if (!Files.exists(baseline)) {
+                System.out.println("No baseline at " + baseline + ", skipping the comparison");
+            } else {
+                List<String> regressions;
+                try (Reader reader = Files.newBufferedReader(baseline, StandardCharsets.UTF_8)) {
+                    regressions = compare(new JsonParser().parse(reader).getAsJsonObject(), report, threshold);
+                }
+                if (!regressions.isEmpty()) {
+                    regressions.forEach(System.err::println);
+                    System.exit(1);
+                }
+                System.out.println("No regressions against " + baseline);
+            }
+        }
+    }
+    
+    private JsonObject run(CorpusGenerator.Spec spec, Path workDirectory, List<String> presets, int warmup, int iterations) throws Exception {
+        Benchmarks.deleteRecursively(workDirectory);
+        Path input = CorpusGenerator.writeJar(workDirectory, "input.jar", spec);
+        Path mappings = workDirectory.resolve("mappings.tiny");
+        CorpusGenerator.writeMappings(mappings, spec);
+        System.setProperty(BuiltinProperties.UNIQUE_IDENTIFIER, "bench");
+        System.setProperty(BuiltinProperties.MAPPINGS_WITH_SRG, mappings.toString());
+        System.setProperty(BuiltinProperties.MIXIN_MAPPINGS, mappings.toString());
+        System.setProperty(BuiltinProperties.REPRODUCIBLE, "true");
+        if (spec.refmaps > 0) {
+            System.setProperty(BuiltinProperties.REFMAP_NAME, CorpusGenerator.refmapName(0));
+        }
+        
+        JsonObject report = new JsonObject();
+        report.addProperty("corpus", spec.toString());
+        report.addProperty("inputBytes", Files.size(input));
+        JsonObject results = new JsonObject();
+        TransformerScheduler.StepListener listener = (name, duration) -> phases.computeIfAbsent(name, $ -> new LongAdder()).add(duration);
+        TransformerScheduler.addListener(listener);
+        try {
+            for (String preset : presets) {
+                results.add(preset, runPreset(preset, spec, input, workDirectory.resolve(preset + ".jar"), warmup, iterations));
+            }
+        } finally {
+            TransformerScheduler.removeListener(listener);
+        }
+        report.add("presets", results);
+        return report;
+    }
+    
+    private JsonObject runPreset(String preset, CorpusGenerator.Spec spec, Path input, Path output, int warmup, int iterations) throws Exception {
+        System.setProperty(BuiltinProperties.PLATFORM_NAME, preset);
+        for (int i = 0; i < warmup; i++) {
+            Transform.runTransformers(input, output, transformers(preset));
+        }
+        phases.clear();
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+        MemoryBudget.INSTANCE.resetPeak();
+        
+        long[] durations = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            Transform.runTransformers(input, output, transformers(preset));
+            durations[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(durations);
+        long median = durations[iterations / 2];
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peakHeap += pool.getPeakUsage().getUsed();
+        }
+        
+        JsonObject result = new JsonObject();
+        result.addProperty("classesPerSecond", spec.classes * 1e9 / median);
+        result.addProperty("medianMillis", median / 1e6);
+        result.addProperty("minMillis", durations[0] / 1e6);
+        result.addProperty("peakHeapBytes", peakHeap);
+        result.addProperty("peakStoreBytes", MemoryBudget.INSTANCE.getPeak());
+        JsonObject phaseTimes = new JsonObject();
+        new TreeMap<>(phases).forEach((name, total) -> phaseTimes.addProperty(name, total.sum() / 1e6 / iterations));
+        result.add("phaseMillis", phaseTimes);
+        return result;
+    }
+    
+    /**
+     * The transformers of each preset, leaving out the ones that need real Minecraft mappings.
+     */
+    private static List<Transformer> transformers(String preset) {
+        switch (preset) {
+            case "fabric":
+                return Arrays.asList(new RemapInjectables(), new TransformExpectPlatform(), new TransformPlatformOnly(), new GenerateFakeFabricMod());
+            case "quilt":
+                return Arrays.asList(new RemapInjectables(), new TransformExpectPlatform(), new TransformPlatformOnly(), new GenerateFakeQuiltMod());
+            case "forge":
+                return Arrays.asList(new RemapInjectables(), new TransformExpectPlatform(), new TransformPlatformOnly(), new TransformForgeAnnotations(),
+                        new TransformForgeEnvironment(), new GenerateFakeForgeMod(), new FixForgeMixin());
+            case "neoforge":
+                return Arrays.asList(new TransformForgeLikeToNeoForge(), new RemapInjectables(), new TransformExpectPlatform(), new TransformPlatformOnly(),
+                        new TransformNeoForgeAnnotations(), new TransformNeoForgeEnvironment(), new GenerateFakeNeoForgeMod());
+            default:
+                throw new IllegalArgumentException("Unknown preset " + preset);
+        }
+    }
+    
+    private static List<String> compare(JsonObject baseline, JsonObject report, double threshold) {
+        List<String> regressions = new ArrayList<>();
+        JsonObject baselinePresets = baseline.getAsJsonObject("presets");
+        for (Map.Entry<String, JsonElement> entry : report.getAsJsonObject("presets").entrySet()) {
+            if (!baselinePresets.has(entry.getKey())) continue;
+            JsonObject expected = baselinePresets.getAsJsonObject(entry.getKey());
+            JsonObject actual = entry.getValue().getAsJsonObject();
+            double throughput = actual.get("classesPerSecond").getAsDouble();
+            double expectedThroughput = expected.get("classesPerSecond").getAsDouble();
+            if (throughput < expectedThroughput * (1 - threshold)) {
+                regressions.add(String.format(Locale.ROOT, "%s: %.0f classes/s, baseline %.0f classes/s", entry.getKey(), throughput, expectedThroughput));
+            }
+            long heap = actual.get("peakHeapBytes").getAsLong();
+            long expectedHeap = expected.get("peakHeapBytes").getAsLong();
+            if (heap > expectedHeap * (1 + threshold)) {
+                regressions.add(String.format(Locale.ROOT, "%s: %d bytes peak heap, baseline %d bytes", entry.getKey(), heap, expectedHeap));
+            }
+        }
+        return regressions;
+    }
+    
+    private static void write(Path path, String json) throws IOException {
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write(json);
+        }
+    }
+}
@@ -24,6 +24,7 @@
 package dev.architectury.transformer;
 
 import dev.architectury.transformer.handler.SimpleTransformerHandler;
+import dev.architectury.transformer.handler.TransformerScheduler;
 import dev.architectury.transformer.input.FileAccess;
 import dev.architectury.transformer.input.OpenedFileAccess;
 import dev.architectury.transformer.transformers.BuiltinProperties;
@@ -32,18 +33,23 @@ import dev.architectury.transformer.transformers.base.edit.SimpleTransformerCont
 import dev.architectury.transformer.transformers.base.edit.TransformerContext;
 import dev.architectury.transformer.transformers.classpath.ReadClasspathProvider;
 import dev.architectury.transformer.util.Logger;
+import dev.architectury.transformer.util.MemoryBudget;
+import dev.architectury.transformer.util.ReproducibleOutput;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.time.Duration;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
@@ -63,6 +69,14 @@ public class Transform {
         return System.getProperty(BuiltinProperties.COMPILE_CLASSPATH, "true").split(File.pathSeparator);
     }
     
+    public static Path getCacheDirectory() {
+        String location = System.getProperty(BuiltinProperties.CACHE_LOCATION);
+        if (location != null) {
+            return Paths.get(location);
+        }
+        return Paths.get(System.getProperty("java.io.tmpdir"), "architectury-transformer");
+    }
+    
     public static void runTransformers(Path input, Path output, List<Transformer> transformers) throws Exception {
         TransformerContext context = new SimpleTransformerContext(args -> {throw new IllegalStateException();},
                 true, false, true);
@@ -74,18 +88,32 @@ public class Transform {
             Logger.debug(" - " + transformer.toString());
         }
         logTime(() -> {
-            if (Files.isDirectory(input)) {
-                copyDirectory(input, output);
-                try (OpenedFileAccess outputInterface = OpenedFileAccess.ofDirectory(output)) {
-                    runTransformers(context, classpath, input.toString(), outputInterface, transformers);
-                }
-            } else {
-                Files.copy(input, output, StandardCopyOption.REPLACE_EXISTING);
-                try (OpenedFileAccess outputInterface = OpenedFileAccess.ofJar(output)) {
-                    runTransformers(context, classpath, input.toString(), outputInterface, transformers);
-                }
-            }
+            transformPath(input, output, outputInterface -> runTransformers(context, classpath, input.toString(), outputInterface, transformers));
         }, "Transformed jar with " + transformers.size() + " transformer(s)");
+        Logger.debug(() -> "Memory held by the transformer: " + MemoryBudget.INSTANCE.describe());
+    }
+    
+    /**
+     * Copies the input jar or directory to the output and runs the action on the copy.
+     */
+    static void transformPath(Path input, Path output, PathTransform action) throws Exception {
+        if (Files.isDirectory(input)) {
+            copyDirectory(input, output);
+            try (OpenedFileAccess outputInterface = OpenedFileAccess.ofDirectory(output)) {
+                action.transform(outputInterface);
+            }
+            if (ReproducibleOutput.isEnabled()) {
+                ReproducibleOutput.normalizeDirectory(output);
+            }
+        } else {
+            Files.copy(input, output, StandardCopyOption.REPLACE_EXISTING);
+            try (OpenedFileAccess outputInterface = OpenedFileAccess.ofJar(output)) {
+                action.transform(outputInterface);
+            }
+            if (ReproducibleOutput.isEnabled()) {
+                ReproducibleOutput.normalizeJar(output);
+            }
+        }
     }
     
     public static void runTransformers(TransformerContext context, ClasspathProvider classpath, String input, FileAccess output, List<Transformer> transformers)
@@ -105,6 +133,16 @@ public class Transform {
         }
     }
     
+    /**
+     * Transforms on the executor, the handler is closed before the returned future completes.
+     */
+    public static CompletableFuture<Void> runTransformersAsync(TransformerContext context, ReadClasspathProvider classpath, String input, FileAccess output,
+            List<Transformer> transformers, Executor executor) {
+        SimpleTransformerHandler handler = new SimpleTransformerHandler(classpath, context, false);
+        // Cancelling only completes the future once the running steps returned, so they never see a closed handler
+        return TransformerScheduler.andFinally(handler.handleAsync(input, output, transformers, executor), handler::close);
+    }
+    
     public static void logTime(DoThing doThing, String task) throws Exception {
         measureTime(doThing, (duration) -> {
             Logger.info(task + " in " + formatDuration(duration));
@@ -146,6 +184,11 @@ public class Transform {
         void doThing() throws Exception;
     }
     
+    @FunctionalInterface
+    interface PathTransform {
+        void transform(FileAccess output) throws Exception;
+    }
+    
     /*
      * Copyright (C) 2008 The Guava Authors
      *
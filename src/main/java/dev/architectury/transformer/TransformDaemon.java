@@ -0,0 +1,362 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer;
+
+import dev.architectury.transformer.transformers.ClasspathProvider;
+import dev.architectury.transformer.transformers.properties.TransformersReader;
+import dev.architectury.transformer.transformers.properties.TransformersWriter;
+import dev.architectury.transformer.util.HashUtils;
+import dev.architectury.transformer.util.Logger;
+import dev.architectury.transformer.util.TransformerEntry;
+import dev.architectury.transformer.util.TransformerPair;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * A long-lived process keeping {@link TransformSession}s warm between builds, so the classpath and the mappings
+ * are only read once. It listens on a loopback socket, whose port and access token are written to
+ * {@link #getPortFile()}, and shuts down after being idle for a while.
+ * <p>
+ * A request is a list of lines starting with the token, answered with a single {@code ok <summary>} or {@code error <message>} line:
+ * <pre>
+ * token &lt;token&gt;
+ * property &lt;key&gt;=&lt;value&gt;
+ * classpath &lt;path&gt;
+ * output &lt;input&gt;\t&lt;output&gt;
+ * transformers &lt;entries in the {@link TransformersWriter} format&gt;
+ * run
+ * </pre>
+ * Sessions are keyed by a fingerprint of the classpath and of the files referenced by the properties, so changing
+ * any of them starts from a fresh session.
+ */
+public class TransformDaemon implements Closeable {
+    private static final int MAX_SESSIONS = 4;
+    private static final int READ_TIMEOUT_MILLIS = 30_000;
+    private final ServerSocket server;
+    private final String token;
+    private final Duration idleTimeout;
+    private final Map<String, TransformSession> sessions = new LinkedHashMap<String, TransformSession>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, TransformSession> eldest) {
+            if (size() > MAX_SESSIONS) {
+                closeSession(eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    };
+    
+    public TransformDaemon(Duration idleTimeout) throws IOException {
+        this.server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        this.token = newToken();
+        this.idleTimeout = idleTimeout;
+    }
+    
+    public static Path getPortFile() {
+        return Transform.getCacheDirectory().resolve("daemon.properties");
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Duration idleTimeout = Duration.ofHours(3);
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--idle-timeout") && i + 1 < args.length) {
+                idleTimeout = Duration.ofSeconds(Long.parseLong(args[++i]));
+            } else {
+                System.err.println("Usage: TransformDaemon [--idle-timeout <seconds>]");
+                System.exit(1);
+                return;
+            }
+        }
+        try (TransformDaemon daemon = new TransformDaemon(idleTimeout)) {
+            daemon.run();
+        }
+    }
+    
+    /**
+     * Serves requests one at a time until idle for longer than the idle timeout, as transformers read their
+     * configuration from system properties.
+     */
+    public void run() throws IOException {
+        writePortFile();
+        Logger.info("Transformer daemon listening on port " + server.getLocalPort());
+        server.setSoTimeout((int) Math.min(Integer.MAX_VALUE, idleTimeout.toMillis()));
+        while (true) {
+            try (Socket socket = server.accept()) {
+                // A client that stalls must not hold up the daemon for every other build
+                socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+                serve(socket);
+            } catch (SocketTimeoutException exception) {
+                Logger.info("Transformer daemon was idle for " + Transform.formatDuration(idleTimeout) + ", shutting down");
+                return;
+            } catch (IOException exception) {
+                Logger.error("Failed to serve transformer daemon request: " + exception);
+            }
+        }
+    }
+    
+    private void serve(Socket socket) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+        String response;
+        try {
+            response = "ok " + handle(readRequest(reader));
+        } catch (Throwable throwable) {
+            Logger.error("Transformer daemon request failed: " + throwable);
+            response = "error " + String.valueOf(throwable).replace('\n', ' ');
+        }
+        writer.write(response + "\n");
+        writer.flush();
+    }
+    
+    private Request readRequest(BufferedReader reader) throws IOException {
+        String first = reader.readLine();
+        if (first == null || !first.startsWith("token ")
+            || !MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), first.substring(6).getBytes(StandardCharsets.UTF_8))) {
+            throw new SecurityException("Invalid transformer daemon token");
+        }
+        Request request = new Request();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int space = line.indexOf(' ');
+            String command = space == -1 ? line : line.substring(0, space);
+            String argument = space == -1 ? "" : line.substring(space + 1);
+            switch (command) {
+                case "property":
+                    int equals = argument.indexOf('=');
+                    request.properties.put(argument.substring(0, equals), argument.substring(equals + 1));
+                    break;
+                case "classpath":
+                    request.classpath.add(Paths.get(argument));
+                    break;
+                case "output":
+                    String[] split = argument.split("\t", 2);
+                    request.outputs.put(Paths.get(split[0]), Paths.get(split[1]));
+                    break;
+                case "transformers":
+                    request.transformers.append(argument);
+                    break;
+                case "run":
+                    return request;
+                default:
+                    throw new IOException("Unknown transformer daemon command: " + command);
+            }
+        }
+        throw new EOFException("Transformer daemon request ended before run");
+    }
+    
+    private String handle(Request request) throws Exception {
+        Map<Path, List<TransformerPair>> transformers;
+        try (TransformersReader reader = new TransformersReader(new StringReader(request.transformers.toString()))) {
+            transformers = reader.readAll();
+        }
+        // Validated up front, jobs left pending in the session would run with the next request
+        for (Path input : transformers.keySet()) {
+            if (!request.outputs.containsKey(input)) throw new IllegalArgumentException("No output for " + input);
+        }
+        // The properties only apply to this request, transformers read them globally
+        Map<String, String> previous = new HashMap<>();
+        request.properties.forEach((key, value) -> previous.put(key, System.setProperty(key, value)));
+        try {
+            String fingerprint = fingerprint(request);
+            TransformSession session = sessions.get(fingerprint);
+            if (session == null) {
+                Logger.debug("Starting transformer daemon session " + fingerprint);
+                session = TransformSession.of(ClasspathProvider.of(request.classpath));
+                sessions.put(fingerprint, session);
+            }
+            try {
+                for (Map.Entry<Path, List<TransformerPair>> entry : transformers.entrySet()) {
+                    session.addJobFromPairs(entry.getKey(), request.outputs.get(entry.getKey()), entry.getValue());
+                }
+            } catch (Throwable throwable) {
+                sessions.remove(fingerprint);
+                closeSession(session);
+                throw throwable;
+            }
+            long start = System.nanoTime();
+            session.run();
+            return transformers.size() + " job(s) in " + Transform.formatDuration(Duration.ofNanos(System.nanoTime() - start));
+        } finally {
+            previous.forEach((key, value) -> {
+                if (value == null) {
+                    System.clearProperty(key);
+                } else {
+                    System.setProperty(key, value);
+                }
+            });
+        }
+    }
+    
+    /**
+     * Hashes the classpath and every file referenced by a property, by path, size and modification time.
+     */
+    private static String fingerprint(Request request) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        for (Path path : request.classpath) {
+            appendFile(builder, path);
+        }
+        for (Map.Entry<String, String> property : new TreeMap<>(request.properties).entrySet()) {
+            builder.append(property.getKey()).append('=').append(property.getValue()).append('\n');
+            try {
+                Path path = Paths.get(property.getValue());
+                if (Files.isRegularFile(path)) {
+                    appendFile(builder, path);
+                }
+            } catch (InvalidPathException ignored) {
+            }
+        }
+        return HashUtils.sha256(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static void appendFile(StringBuilder builder, Path path) throws IOException {
+        builder.append(path.toAbsolutePath()).append('\t');
+        if (Files.exists(path)) {
+            builder.append(Files.size(path)).append('\t').append(Files.getLastModifiedTime(path).toMillis());
+        }
+        builder.append('\n');
+    }
+    
+    private void writePortFile() throws IOException {
+        Path file = getPortFile();
+        Files.createDirectories(file.getParent());
+        Properties properties = new Properties();
+        properties.setProperty("port", String.valueOf(server.getLocalPort()));
+        properties.setProperty("token", token);
+        Path temp = Files.createTempFile(file.getParent(), "daemon", ".properties");
+        try {
+            Files.setPosixFilePermissions(temp, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException ignored) {
+        }
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            properties.store(writer, null);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    private static String newToken() {
+        byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        return HashUtils.sha256(bytes);
+    }
+    
+    private static void closeSession(TransformSession session) {
+        try {
+            session.close();
+        } catch (IOException exception) {
+            Logger.error("Failed to close transformer daemon session: " + exception);
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        try {
+            Files.deleteIfExists(getPortFile());
+        } finally {
+            sessions.values().forEach(TransformDaemon::closeSession);
+            sessions.clear();
+            server.close();
+        }
+    }
+    
+    private static class Request {
+        private final Map<String, String> properties = new LinkedHashMap<>();
+        private final List<Path> classpath = new ArrayList<>();
+        private final Map<Path, Path> outputs = new HashMap<>();
+        private final StringBuilder transformers = new StringBuilder();
+    }
+    
+    /**
+     * Submits requests to a running daemon.
+     */
+    public static final class Client {
+        private final int port;
+        private final String token;
+        
+        private Client(int port, String token) {
+            this.port = port;
+            this.token = token;
+        }
+        
+        /**
+         * Returns a client for the running daemon, or null if no daemon wrote its port file.
+         */
+        @Nullable
+        public static Client find() throws IOException {
+            Path file = getPortFile();
+            if (!Files.exists(file)) return null;
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            String port = properties.getProperty("port");
+            String token = properties.getProperty("token");
+            if (port == null || token == null) return null;
+            return new Client(Integer.parseInt(port), token);
+        }
+        
+        /**
+         * Transforms the inputs of the entries to their outputs, returning the summary of the daemon.
+         */
+        public String transform(Map<String, String> properties, List<Path> classpath, Map<Path, Path> outputs, List<TransformerEntry> entries) throws IOException {
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+                writer.write("token " + token + "\n");
+                for (Map.Entry<String, String> property : properties.entrySet()) {
+                    writer.write("property " + property.getKey() + "=" + property.getValue() + "\n");
+                }
+                for (Path path : classpath) {
+                    writer.write("classpath " + path.toAbsolutePath() + "\n");
+                }
+                for (Map.Entry<Path, Path> output : outputs.entrySet()) {
+                    writer.write("output " + output.getKey() + "\t" + output.getValue().toAbsolutePath() + "\n");
+                }
+                StringWriter transformers = new StringWriter();
+                try (TransformersWriter transformersWriter = new TransformersWriter(transformers)) {
+                    for (TransformerEntry entry : entries) {
+                        transformersWriter.write(entry);
+                    }
+                }
+                writer.write("transformers " + transformers + "\n");
+                writer.write("run\n");
+                writer.flush();
+                String response = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8)).readLine();
+                if (response == null) throw new EOFException("Transformer daemon closed the connection");
+                if (response.startsWith("ok ")) return response.substring(3);
+                throw new IOException("Transformer daemon failed: " + response.substring(response.indexOf(' ') + 1));
+            }
+        }
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import dev.architectury.tinyremapper.IMappingProvider;
+import dev.architectury.transformer.handler.SimpleTransformerHandler;
+import dev.architectury.transformer.transformers.ClasspathProvider;
+import dev.architectury.transformer.transformers.base.TinyRemapperTransformer;
+import dev.architectury.transformer.transformers.base.edit.SimpleTransformerContext;
+import dev.architectury.transformer.transformers.base.edit.TransformerContext;
+import dev.architectury.transformer.transformers.classpath.ReadClasspathProvider;
+import dev.architectury.transformer.util.Logger;
+import dev.architectury.transformer.util.TransformerPair;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transforms many artifacts against the same classpath, sharing the classpath and the collected mappings between
+ * jobs, which run in parallel. Every job is transformed like {@link Transform#runTransformers(Path, Path, List)} would.
+ */
+public class TransformSession implements Closeable {
+    private final ClasspathProvider classpath;
+    private final int parallelism;
+    private final List<Job> jobs = new ArrayList<>();
+    private final Map<List<Object>, Set<IMappingProvider>> mappings = new ConcurrentHashMap<>();
+    private final Map<Transformer, Object> pairKeys = Collections.synchronizedMap(new IdentityHashMap<>());
+    private final BlockingQueue<SessionHandler> handlers = new LinkedBlockingQueue<>();
+    private final AtomicInteger createdHandlers = new AtomicInteger();
+    private final Set<Path> excludedInputs = new HashSet<>();
+    private ReadClasspathProvider readClasspath;
+    
+    public TransformSession(ClasspathProvider classpath, int parallelism) {
+        this.classpath = classpath;
+        this.parallelism = Math.max(1, parallelism);
+    }
+    
+    public static TransformSession of(ClasspathProvider classpath) {
+        return new TransformSession(classpath, Runtime.getRuntime().availableProcessors());
+    }
+    
+    public Job addJob(Path input, Path output, List<Transformer> transformers) {
+        Job job = new Job(input, output, transformers);
+        synchronized (jobs) {
+            jobs.add(job);
+        }
+        return job;
+    }
+    
+    /**
+     * Adds a job constructing its transformers from the pairs, jobs with equal pairs share their mappings.
+     */
+    public Job addJobFromPairs(Path input, Path output, List<TransformerPair> pairs) {
+        List<Transformer> transformers = new ArrayList<>(pairs.size());
+        for (TransformerPair pair : pairs) {
+            Transformer transformer = pair.construct();
+            pairKeys.put(transformer, Arrays.asList(pair.getClazz(), String.valueOf(pair.getProperties())));
+            transformers.add(transformer);
+        }
+        return addJob(input, output, transformers);
+    }
+    
+    /**
+     * Runs every pending job, failures of single jobs are collected and thrown once all jobs finished.
+     */
+    public void run() throws Exception {
+        List<Job> pending;
+        synchronized (jobs) {
+            pending = new ArrayList<>(jobs);
+            jobs.clear();
+        }
+        if (pending.isEmpty()) return;
+        ReadClasspathProvider classpath = getClasspath(pending);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, pending.size()));
+        try {
+            Transform.logTime(() -> {
+                List<Future<?>> futures = new ArrayList<>();
+                for (Job job : pending) {
+                    futures.add(executor.submit(() -> {
+                        runJob(classpath, job);
+                        return null;
+                    }));
+                }
+                Exception exception = null;
+                for (int i = 0; i < futures.size(); i++) {
+                    try {
+                        futures.get(i).get();
+                    } catch (ExecutionException e) {
+                        Exception cause = new RuntimeException("Failed to transform " + pending.get(i).input, e.getCause());
+                        if (exception == null) exception = cause;
+                        else exception.addSuppressed(cause);
+                    }
+                }
+                if (exception != null) throw exception;
+            }, "Transformed " + pending.size() + " job(s) in session");
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    private synchronized ReadClasspathProvider getClasspath(List<Job> jobs) throws IOException {
+        // Inputs may be on the classpath, but should not be read as part of it
+        Set<Path> added = new HashSet<>();
+        for (Job job : jobs) {
+            Path input = job.input.toAbsolutePath().normalize();
+            if (excludedInputs.add(input)) {
+                added.add(input);
+            }
+        }
+        if (readClasspath == null || Arrays.stream(classpath.provide()).anyMatch(path -> added.contains(path.toAbsolutePath().normalize()))) {
+            Set<Path> excluded = new HashSet<>(excludedInputs);
+            readClasspath = ReadClasspathProvider.of(classpath.filter(path -> !excluded.contains(path.toAbsolutePath().normalize())));
+            // The pooled handlers read the previous classpath
+            closeHandlers();
+        }
+        return readClasspath;
+    }
+    
+    private void runJob(ReadClasspathProvider classpath, Job job) throws Exception {
+        SessionHandler handler = handlers.poll();
+        if (handler == null) {
+            if (createdHandlers.incrementAndGet() <= parallelism) {
+                try {
+                    handler = new SessionHandler(classpath);
+                } catch (Throwable throwable) {
+                    createdHandlers.decrementAndGet();
+                    throw throwable;
+                }
+            } else {
+                handler = handlers.take();
+            }
+        }
+        try {
+            SessionHandler jobHandler = handler;
+            Transform.measureTime(() -> {
+                Transform.transformPath(job.input, job.output, output -> jobHandler.handle(job.input.toString(), output, job.transformers));
+            }, duration -> Logger.debug(() -> "Transformed " + job.input + " to " + job.output + " in " + Transform.formatDuration(duration)));
+        } finally {
+            handlers.add(handler);
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        closeHandlers();
+    }
+    
+    private void closeHandlers() throws IOException {
+        IOException exception = null;
+        for (SessionHandler handler : handlers) {
+            try {
+                handler.close();
+            } catch (IOException e) {
+                if (exception == null) exception = e;
+                else exception.addSuppressed(e);
+            }
+        }
+        handlers.clear();
+        createdHandlers.set(0);
+        if (exception != null) throw exception;
+    }
+    
+    /**
+     * Runs a session from a job manifest, see {@link #readManifest(Path)}.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            System.err.println("Usage: TransformSession <manifest.json>");
+            System.exit(1);
+            return;
+        }
+        try (TransformSession session = readManifest(Paths.get(args[0]))) {
+            session.run();
+        }
+    }
+    
+    /**
+     * Reads a job manifest, a json object of the form:
+     * <pre>
+     * {
+     *   "classpath": ["libs/a.jar"],
+     *   "threads": 4,
+     *   "properties": { "architectury.platform.name": "forge" },
+     *   "jobs": [
+     *     {
+     *       "input": "in.jar",
+     *       "output": "out.jar",
+     *       "transformers": [{ "class": "dev.architectury.transformer.transformers.RemapInjectables", "properties": {} }]
+     *     }
+     *   ]
+     * }
+     * </pre>
+     * The classpath defaults to {@link ClasspathProvider#fromProperties()}, and the properties are set as system properties.
+     */
+    public static TransformSession readManifest(Path manifest) throws IOException {
+        JsonObject json = new JsonParser().parse(new String(Files.readAllBytes(manifest), StandardCharsets.UTF_8)).getAsJsonObject();
+        Path base = manifest.toAbsolutePath().getParent();
+        if (json.has("properties")) {
+            for (Map.Entry<String, JsonElement> entry : json.getAsJsonObject("properties").entrySet()) {
+                System.setProperty(entry.getKey(), entry.getValue().getAsString());
+            }
+        }
+        ClasspathProvider classpath;
+        if (json.has("classpath")) {
+            List<Path> paths = new ArrayList<>();
+            for (JsonElement element : json.getAsJsonArray("classpath")) {
+                paths.add(base.resolve(element.getAsString()));
+            }
+            classpath = ClasspathProvider.of(paths);
+        } else {
+            classpath = ClasspathProvider.fromProperties();
+        }
+        int threads = json.has("threads") ? json.get("threads").getAsInt() : Runtime.getRuntime().availableProcessors();
+        TransformSession session = new TransformSession(classpath, threads);
+        for (JsonElement element : json.getAsJsonArray("jobs")) {
+            JsonObject job = element.getAsJsonObject();
+            List<TransformerPair> pairs = new ArrayList<>();
+            for (JsonElement transformerElement : job.getAsJsonArray("transformers")) {
+                JsonObject transformer = transformerElement.getAsJsonObject();
+                try {
+                    Class<? extends Transformer> clazz = Class.forName(transformer.get("class").getAsString()).asSubclass(Transformer.class);
+                    pairs.add(new TransformerPair(clazz, transformer.has("properties") ? transformer.getAsJsonObject("properties") : null));
+                } catch (ClassNotFoundException exception) {
+                    throw new IllegalArgumentException("Unknown transformer in " + manifest + ": " + transformer.get("class"), exception);
+                }
+            }
+            session.addJobFromPairs(base.resolve(job.get("input").getAsString()), base.resolve(job.get("output").getAsString()), pairs);
+        }
+        return session;
+    }
+    
+    public static final class Job {
+        private final Path input;
+        private final Path output;
+        private final List<Transformer> transformers;
+        
+        private Job(Path input, Path output, List<Transformer> transformers) {
+            this.input = input;
+            this.output = output;
+            this.transformers = transformers;
+        }
+        
+        public Path getInput() {
+            return input;
+        }
+        
+        public Path getOutput() {
+            return output;
+        }
+        
+        public List<Transformer> getTransformers() {
+            return Collections.unmodifiableList(transformers);
+        }
+    }
+    
+    /**
+     * A handler owned by one job at a time. It remaps like the single job API does, a prepared remapper would skip
+     * propagating mappings to overriding methods.
+     */
+    private class SessionHandler extends SimpleTransformerHandler {
+        private SessionHandler(ReadClasspathProvider classpath) {
+            super(classpath, newContext(), false);
+        }
+        
+        @Override
+        protected Set<IMappingProvider> collectMappings(List<Transformer> transformers) throws Exception {
+            List<Object> key = new ArrayList<>();
+            for (Transformer transformer : transformers) {
+                if (transformer instanceof TinyRemapperTransformer) {
+                    key.add(pairKeys.getOrDefault(transformer, transformer));
+                }
+            }
+            Set<IMappingProvider> providers = mappings.get(key);
+            if (providers == null) {
+                providers = super.collectMappings(transformers);
+                Set<IMappingProvider> existing = mappings.putIfAbsent(key, providers);
+                if (existing != null) providers = existing;
+            }
+            return providers;
+        }
+    }
+    
+    private static TransformerContext newContext() {
+        return new SimpleTransformerContext(args -> {throw new IllegalStateException();}, true, false, true);
+    }
+}
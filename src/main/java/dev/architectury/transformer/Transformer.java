@@ -24,6 +24,7 @@
 package dev.architectury.transformer;
 
 import com.google.gson.JsonObject;
+import dev.architectury.transformer.transformers.base.TransformerAccess;
 
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
@@ -34,4 +35,18 @@ public interface Transformer extends Serializable {
     
     default void supplyProperties(JsonObject json) {
     }
+    
+    /**
+     * Returns the resources this transformer reads, transformers not declaring them are assumed to read everything.
+     */
+    default TransformerAccess getReads() {
+        return TransformerAccess.all();
+    }
+    
+    /**
+     * Returns the resources this transformer writes, transformers not declaring them are assumed to write everything.
+     */
+    default TransformerAccess getWrites() {
+        return TransformerAccess.all();
+    }
 }
@@ -0,0 +1,414 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer.handler;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.commons.Remapper;
+
+import java.io.*;
+import java.util.Objects;
+
+/**
+ * Applies class renames directly to the constant pool of a class file, without reading it into a tree.
+ * <p>
+ * Every {@code CONSTANT_Utf8} entry is classified by how it is used (class name, descriptor, signature or literal),
+ * rewritten in place, and everything after the constant pool, including {@code Code} attributes, is copied untouched.
+ * This is only equivalent to a {@link org.objectweb.asm.commons.ClassRemapper} for remappers that rename classes
+ * and nothing else.
+ */
+public final class ConstantPoolRemapper {
+    private static final int NAME = 1;
+    private static final int FIELD_DESC = 2;
+    private static final int METHOD_DESC = 4;
+    private static final int MEMBER_DESC = 8;
+    private static final int TYPE_SIGNATURE = 16;
+    private static final int SIGNATURE = 32;
+    private static final int LITERAL = 64;
+    private static final int CONTEXT_CLASS = 0;
+    private static final int CONTEXT_FIELD = 1;
+    private static final int CONTEXT_METHOD = 2;
+    private static final int CONTEXT_RECORD_COMPONENT = 3;
+    
+    private final byte[] bytes;
+    private final Remapper remapper;
+    private final int[] offsets;
+    private final int[] ends;
+    private final int[] usages;
+    private final String[] strings;
+    private final int poolEnd;
+    private boolean unsupported;
+    
+    private ConstantPoolRemapper(byte[] bytes, Remapper remapper) {
+        this.bytes = bytes;
+        this.remapper = remapper;
+        int count = u2(8);
+        this.offsets = new int[count];
+        this.ends = new int[count];
+        this.usages = new int[count];
+        this.strings = new String[count];
+        int offset = 10;
+        for (int i = 1; i < count; i++) {
+            offsets[i] = offset;
+            int tag = bytes[offset] & 0xFF;
+            switch (tag) {
+                case 1: // Utf8
+                    offset += 3 + u2(offset + 1);
+                    break;
+                case 7: // Class
+                    usages[u2(offset + 1)] |= NAME;
+                    offset += 3;
+                    break;
+                case 8: // String
+                    usages[u2(offset + 1)] |= LITERAL;
+                    offset += 3;
+                    break;
+                case 16: // MethodType
+                    usages[u2(offset + 1)] |= METHOD_DESC;
+                    offset += 3;
+                    break;
+                case 19: // Module
+                case 20: // Package
+                    unsupported = true;
+                    offset += 3;
+                    break;
+                case 12: // NameAndType
+                    usages[u2(offset + 3)] |= MEMBER_DESC;
+                    offset += 5;
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    offset += 5;
+                    break;
+                case 15: // MethodHandle
+                    offset += 4;
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    offset += 9;
+                    ends[i] = offset;
+                    i++;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown constant pool tag " + tag);
+            }
+            ends[i] = offset;
+        }
+        this.poolEnd = offset;
+    }
+    
+    /**
+     * Returns the remapped class file, the same array if nothing was renamed, or {@code null} if the class
+     * cannot be remapped in place and has to go through a {@link org.objectweb.asm.commons.ClassRemapper}.
+     */
+    @Nullable
+    public static byte[] remap(byte[] bytes, Remapper remapper) {
+        try {
+            return new ConstantPoolRemapper(bytes, remapper).remap();
+        } catch (IOException | RuntimeException exception) {
+            return null;
+        }
+    }
+    
+    @Nullable
+    private byte[] remap() throws IOException {
+        if (unsupported) return null;
+        classifyMembersAndAttributes();
+        if (unsupported) return null;
+        String[] replacements = new String[usages.length];
+        boolean changed = false;
+        for (int i = 1; i < usages.length; i++) {
+            int usage = usages[i] & ~LITERAL;
+            if (usage == 0 || offsets[i] == 0 || bytes[offsets[i]] != 1) continue;
+            String value = utf(i);
+            String mapped = null;
+            for (int kind = NAME; kind <= SIGNATURE; kind <<= 1) {
+                if ((usage & kind) == 0) continue;
+                String candidate = map(kind, value);
+                if (mapped != null && !mapped.equals(candidate)) return null;
+                mapped = candidate;
+            }
+            if (mapped == null || mapped.equals(value)) continue;
+            // A string literal sharing this entry must keep its value, splitting the entry would shift indices
+            if ((usages[i] & LITERAL) != 0) return null;
+            replacements[i] = mapped;
+            changed = true;
+        }
+        if (!changed) return bytes;
+        
+        ByteArrayOutputStream stream = new ByteArrayOutputStream(bytes.length + 256);
+        DataOutputStream out = new DataOutputStream(stream);
+        int copied = 0;
+        for (int i = 1; i < replacements.length; i++) {
+            if (replacements[i] == null) continue;
+            out.write(bytes, copied, offsets[i] - copied);
+            out.writeByte(1);
+            out.writeUTF(replacements[i]);
+            copied = ends[i];
+        }
+        out.write(bytes, copied, bytes.length - copied);
+        return stream.toByteArray();
+    }
+    
+    private String map(int kind, String value) {
+        switch (kind) {
+            case NAME:
+                return remapper.mapType(value);
+            case FIELD_DESC:
+                return remapper.mapDesc(value);
+            case METHOD_DESC:
+                return remapper.mapMethodDesc(value);
+            case MEMBER_DESC:
+                return value.startsWith("(") ? remapper.mapMethodDesc(value) : remapper.mapDesc(value);
+            case TYPE_SIGNATURE:
+                return remapper.mapSignature(value, true);
+            case SIGNATURE:
+                return remapper.mapSignature(value, false);
+            default:
+                return value;
+        }
+    }
+    
+    private void classifyMembersAndAttributes() throws IOException {
+        int offset = poolEnd + 6;
+        offset += 2 + 2 * u2(offset);
+        for (int context = CONTEXT_FIELD; context <= CONTEXT_METHOD; context++) {
+            int count = u2(offset);
+            offset += 2;
+            for (int i = 0; i < count; i++) {
+                usages[u2(offset + 4)] |= context == CONTEXT_FIELD ? FIELD_DESC : METHOD_DESC;
+                offset = attributes(offset + 6, context);
+            }
+        }
+        attributes(offset, CONTEXT_CLASS);
+    }
+    
+    private int attributes(int offset, int context) throws IOException {
+        int count = u2(offset);
+        offset += 2;
+        for (int i = 0; i < count; i++) {
+            String name = utf(u2(offset));
+            int length = u4(offset + 2);
+            int start = offset + 6;
+            attribute(name, start, context);
+            offset = start + length;
+        }
+        return offset;
+    }
+    
+    private void attribute(String name, int offset, int context) throws IOException {
+        switch (name) {
+            case "Signature":
+                usages[u2(offset)] |= context == CONTEXT_FIELD || context == CONTEXT_RECORD_COMPONENT ? TYPE_SIGNATURE : SIGNATURE;
+                break;
+            case "Code": {
+                int codeLength = u4(offset + 4);
+                int position = offset + 8 + codeLength;
+                position += 2 + 8 * u2(position);
+                attributes(position, CONTEXT_METHOD);
+                break;
+            }
+            case "LocalVariableTable":
+            case "LocalVariableTypeTable": {
+                int kind = name.equals("LocalVariableTable") ? FIELD_DESC : TYPE_SIGNATURE;
+                int count = u2(offset);
+                for (int i = 0; i < count; i++) {
+                    usages[u2(offset + 2 + i * 10 + 6)] |= kind;
+                }
+                break;
+            }
+            case "InnerClasses": {
+                int count = u2(offset);
+                for (int i = 0; i < count; i++) {
+                    int entry = offset + 2 + i * 8;
+                    int innerName = u2(entry + 4);
+                    if (innerName == 0) continue;
+                    String inner = className(u2(entry));
+                    int outerIndex = u2(entry + 2);
+                    String outer = outerIndex == 0 ? null : className(outerIndex);
+                    String simpleName = utf(innerName);
+                    if (!Objects.equals(remapper.mapInnerClassName(inner, outer, simpleName), simpleName)) {
+                        unsupported = true;
+                    }
+                }
+                break;
+            }
+            case "RuntimeVisibleAnnotations":
+            case "RuntimeInvisibleAnnotations": {
+                int count = u2(offset);
+                offset += 2;
+                for (int i = 0; i < count; i++) {
+                    offset = annotation(offset);
+                }
+                break;
+            }
+            case "RuntimeVisibleParameterAnnotations":
+            case "RuntimeInvisibleParameterAnnotations": {
+                int parameters = bytes[offset] & 0xFF;
+                offset += 1;
+                for (int i = 0; i < parameters; i++) {
+                    int count = u2(offset);
+                    offset += 2;
+                    for (int j = 0; j < count; j++) {
+                        offset = annotation(offset);
+                    }
+                }
+                break;
+            }
+            case "RuntimeVisibleTypeAnnotations":
+            case "RuntimeInvisibleTypeAnnotations": {
+                int count = u2(offset);
+                offset += 2;
+                for (int i = 0; i < count; i++) {
+                    offset = typeAnnotation(offset);
+                }
+                break;
+            }
+            case "AnnotationDefault":
+                elementValue(offset);
+                break;
+            case "Record": {
+                int count = u2(offset);
+                offset += 2;
+                for (int i = 0; i < count; i++) {
+                    usages[u2(offset + 2)] |= FIELD_DESC;
+                    offset = attributes(offset + 4, CONTEXT_RECORD_COMPONENT);
+                }
+                break;
+            }
+            case "Module":
+                unsupported = true;
+                break;
+            default:
+                break;
+        }
+    }
+    
+    private int typeAnnotation(int offset) {
+        int targetType = bytes[offset] & 0xFF;
+        offset += 1;
+        switch (targetType) {
+            case 0x00:
+            case 0x01:
+            case 0x16:
+                offset += 1;
+                break;
+            case 0x10:
+            case 0x11:
+            case 0x12:
+            case 0x17:
+            case 0x42:
+            case 0x43:
+            case 0x44:
+            case 0x45:
+            case 0x46:
+                offset += 2;
+                break;
+            case 0x13:
+            case 0x14:
+            case 0x15:
+                break;
+            case 0x40:
+            case 0x41:
+                offset += 2 + 6 * u2(offset);
+                break;
+            case 0x47:
+            case 0x48:
+            case 0x49:
+            case 0x4A:
+            case 0x4B:
+                offset += 3;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown type annotation target " + targetType);
+        }
+        offset += 1 + 2 * (bytes[offset] & 0xFF);
+        return annotation(offset);
+    }
+    
+    private int annotation(int offset) {
+        usages[u2(offset)] |= FIELD_DESC;
+        int pairs = u2(offset + 2);
+        offset += 4;
+        for (int i = 0; i < pairs; i++) {
+            offset = elementValue(offset + 2);
+        }
+        return offset;
+    }
+    
+    private int elementValue(int offset) {
+        char tag = (char) (bytes[offset] & 0xFF);
+        offset += 1;
+        switch (tag) {
+            case 's':
+                usages[u2(offset)] |= LITERAL;
+                return offset + 2;
+            case 'e':
+                usages[u2(offset)] |= FIELD_DESC;
+                return offset + 4;
+            case 'c':
+                usages[u2(offset)] |= FIELD_DESC;
+                return offset + 2;
+            case '@':
+                return annotation(offset);
+            case '[': {
+                int count = u2(offset);
+                offset += 2;
+                for (int i = 0; i < count; i++) {
+                    offset = elementValue(offset);
+                }
+                return offset;
+            }
+            default:
+                return offset + 2;
+        }
+    }
+    
+    private String className(int classIndex) throws IOException {
+        return utf(u2(offsets[classIndex] + 1));
+    }
+    
+    private String utf(int index) throws IOException {
+        String value = strings[index];
+        if (value == null) {
+            int offset = offsets[index];
+            if (bytes[offset] != 1) throw new IllegalArgumentException("Constant pool entry " + index + " is not a Utf8");
+            value = new DataInputStream(new ByteArrayInputStream(bytes, offset + 1, 2 + u2(offset + 1))).readUTF();
+            strings[index] = value;
+        }
+        return value;
+    }
+    
+    private int u2(int offset) {
+        return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+    }
+    
+    private int u4(int offset) {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16) | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+    }
+}
@@ -28,29 +28,42 @@ import dev.architectury.tinyremapper.TinyRemapper;
 import dev.architectury.transformer.Transformer;
 import dev.architectury.transformer.input.FileAccess;
 import dev.architectury.transformer.input.MemoryFileAccess;
+import dev.architectury.transformer.input.SynchronizedFileAccess;
+import dev.architectury.transformer.transformers.base.AnnotationIndex;
 import dev.architectury.transformer.transformers.base.AssetEditTransformer;
+import dev.architectury.transformer.transformers.base.AssetInterest;
 import dev.architectury.transformer.transformers.base.ClassDeleteTransformer;
 import dev.architectury.transformer.transformers.base.ClassEditTransformer;
+import dev.architectury.transformer.transformers.base.ClassRenameTransformer;
 import dev.architectury.transformer.transformers.base.TinyRemapperTransformer;
+import dev.architectury.transformer.transformers.base.TransformerAccess;
+import dev.architectury.transformer.transformers.base.edit.SimpleTransformerContext;
 import dev.architectury.transformer.transformers.base.edit.TransformerContext;
 import dev.architectury.transformer.transformers.classpath.ReadClasspathProvider;
 import dev.architectury.transformer.util.Logger;
 import dev.architectury.transformer.util.LoggerFilter;
+import dev.architectury.transformer.util.TransformerEvents;
+import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.commons.Remapper;
 import org.objectweb.asm.tree.ClassNode;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.lang.reflect.Field;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public class SimpleTransformerHandler implements TransformHandler {
+    private static final int CLASS_BATCH_SIZE = 64;
     protected ReadClasspathProvider classpath;
     protected TransformerContext context;
     protected boolean nested;
     protected boolean closed = false;
+    private final TransformerCosts costs = TransformerCosts.create();
     
     public SimpleTransformerHandler(ReadClasspathProvider classpath, TransformerContext context, boolean nested) {
         this.classpath = classpath;
@@ -60,64 +73,118 @@ public class SimpleTransformerHandler implements TransformHandler {
     
     @Override
     public void handle(String input, FileAccess output, List<Transformer> transformers) throws Exception {
+        try {
+            schedule(input, output, transformers).run(isConcurrent());
+        } finally {
+            costs.write(input);
+        }
+    }
+    
+    /**
+     * Runs the steps of the transformation on the executor, steps of concurrent transformations interleave on it.
+     */
+    @Override
+    public CompletableFuture<Void> handleAsync(String input, FileAccess output, List<Transformer> transformers, Executor executor) {
+        try {
+            return TransformerScheduler.andFinally(schedule(input, output, transformers).runAsync(executor), () -> costs.write(input));
+        } catch (Exception exception) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(exception);
+            return future;
+        }
+    }
+    
+    private TransformerScheduler schedule(String input, FileAccess output, List<Transformer> transformers) throws Exception {
         if (closed) throw new IllegalStateException("Cannot transform when the handler is closed already!");
         Logger.debug("Transforming from " + input + " to " + output + " with " + transformers.size() + " transformer(s) on " + getClass().getName());
         
-        final Set<IMappingProvider> mappingProviders = collectMappings(transformers);
+        FileAccess sharedOutput = SynchronizedFileAccess.of(output);
+        TransformerContext sharedContext = synchronizedContext(context);
+        TransformerScheduler scheduler = new TransformerScheduler();
+        final Set<IMappingProvider> mappingProviders;
+        try (TransformerEvents.Span ignored = TransformerEvents.phase("mapping collection", input)) {
+            mappingProviders = collectMappings(transformers);
+        }
         
         if (!mappingProviders.isEmpty()) {
             Logger.debug("Remapping with " + mappingProviders.size() + " mapping provider(s):");
             for (IMappingProvider provider : mappingProviders) {
                 Logger.debug(" - " + provider);
             }
-            remapTR(mappingProviders, input, output);
+            scheduler.add("remap", TransformerAccess.classes().and(TransformerAccess.mappings()), TransformerAccess.classes(),
+                    () -> remapTR(mappingProviders, input, sharedOutput));
         }
         
         if (anyTransformerModifiesClass(transformers)) {
             Logger.debug("Found class transformer");
-            output.handle(path -> path.endsWith(".class"), (path, bytes) -> {
-                try {
-                    applyTransforms(transformers, path, bytes, output);
-                } catch (IOException e) {
-                    throw new UncheckedIOException(e);
+            TransformerAccess reads = TransformerAccess.classes(), writes = TransformerAccess.classes();
+            for (Transformer transformer : transformers) {
+                if (transformer instanceof ClassEditTransformer || transformer instanceof ClassDeleteTransformer) {
+                    reads = reads.and(transformer.getReads());
+                    writes = writes.and(transformer.getWrites());
                 }
-            });
+            }
+            scheduler.add("classes", reads, writes, () -> editClasses(transformers, sharedOutput, scheduler));
         } else {
             Logger.debug("No class transformer");
         }
         
         if (nested) {
-            output.modifyFiles(path -> path.endsWith(".jar"), (path, bytes) -> {
-                try (MemoryFileAccess zipFile = MemoryFileAccess.ofZipFile(bytes)) {
-                    handle(path, zipFile, transformers);
-                    return zipFile.asZipFile();
-                } catch (IOException exception) {
-                    throw new UncheckedIOException(exception);
-                } catch (Exception exception) {
-                    throw new RuntimeException(exception);
+            TransformerAccess jars = TransformerAccess.assets(AssetInterest.glob("**.jar"));
+            scheduler.add("nested jars", jars, jars.and(TransformerAccess.arguments()), () -> editNestedJars(transformers, sharedOutput, scheduler));
+        }
+        
+        SharedAssets sharedAssets = new SharedAssets(sharedOutput);
+        for (Transformer transformer : transformers) {
+            if (transformer instanceof AssetEditTransformer) {
+                AssetEditTransformer assetTransformer = (AssetEditTransformer) transformer;
+                AssetInterest interest = assetTransformer.getAssetInterest();
+                TransformerScheduler.Step step = scheduler.add(transformer.getClass().getName(), transformer.getReads(), transformer.getWrites(),
+                        () -> editFile(assetTransformer, sharedContext, sharedOutput, interest.isAll() ? null : sharedAssets.get(assetTransformer, interest)));
+                // Steps running first see the output as it is now, so they can share a single walk
+                if (!interest.isAll() && step.getDependencies().isEmpty()) {
+                    sharedAssets.share(assetTransformer, interest);
                 }
-            });
+            }
         }
         
-        editFiles(transformers, output);
+        return scheduler;
+    }
+    
+    /**
+     * Returns whether independent steps may run on other threads, rather than one after another on the calling thread.
+     */
+    protected boolean isConcurrent() {
+        return true;
+    }
+    
+    private static TransformerContext synchronizedContext(TransformerContext context) {
+        return new SimpleTransformerContext(args -> {
+            synchronized (context) {
+                context.appendArgument(args);
+            }
+        }, context.canModifyAssets(), context.canAppendArgument(), context.canAddClasses());
     }
     
-    private Set<IMappingProvider> collectMappings(List<Transformer> transformers) throws Exception {
+    protected Set<IMappingProvider> collectMappings(List<Transformer> transformers) throws Exception {
         final Set<IMappingProvider> mappings = new HashSet<>();
+        TransformerCosts.Probe probe = costs.probe();
         
         for (Transformer transformer : transformers) {
             if (transformer instanceof TinyRemapperTransformer) {
                 mappings.addAll(((TinyRemapperTransformer) transformer).collectMappings());
+                probe.charge(costs.get(transformer));
             }
         }
         return mappings;
     }
     
-    private void remapTR(Set<IMappingProvider> mappingProviders, String input, FileAccess output) throws Exception {
+    protected void remapTR(Set<IMappingProvider> mappingProviders, String input, FileAccess output) throws Exception {
+        TransformerCosts.Probe probe = costs.probe();
         TinyRemapper remapper = getRemapper(mappingProviders);
         
         LoggerFilter.replaceSystemOut();
-        try {
+        try (TransformerEvents.Span ignored = TransformerEvents.phase("remap", input)) {
             List<byte[]> classes = new ArrayList<>();
             output.handle((path, bytes) -> {
                 if (path.endsWith(".class")) {
@@ -137,10 +204,12 @@ public class SimpleTransformerHandler implements TransformHandler {
             throw new RuntimeException("Failed to remap " + input + " to " + output, e);
         } finally {
             closeRemapper(remapper);
+            probe.charge(costs.get(TransformerCosts.REMAP));
         }
     }
     
     private void debugRemapper(TinyRemapper remapper) throws Exception {
+        if (!Logger.isDebugEnabled()) return;
         Field classMapField = remapper.getClass().getDeclaredField("classMap");
         classMapField.setAccessible(true);
         Logger.debug("Remapping Classes:");
@@ -174,73 +243,256 @@ public class SimpleTransformerHandler implements TransformHandler {
         return false;
     }
     
+    private void editClasses(List<Transformer> transformers, FileAccess output, TransformerScheduler scheduler) throws Exception {
+        // The paths are listed first, so other steps are not locked out of the output for the whole walk
+        List<String> paths = listFiles(output, ".class");
+        // Reading the next batch of classes overlaps with transforming the current one
+        CompletableFuture<Map<String, byte[]>> next = readFiles(output, paths, 0, scheduler.getPipelineExecutor());
+        for (int start = 0; start < paths.size(); start += CLASS_BATCH_SIZE) {
+            Map<String, byte[]> batch = TransformerScheduler.join(next);
+            next = readFiles(output, paths, start + CLASS_BATCH_SIZE, scheduler.getPipelineExecutor());
+            for (Map.Entry<String, byte[]> entry : batch.entrySet()) {
+                scheduler.checkCancelled();
+                applyTransforms(transformers, entry.getKey(), entry.getValue(), output);
+            }
+        }
+    }
+    
+    private static CompletableFuture<Map<String, byte[]>> readFiles(FileAccess output, List<String> paths, int start, Executor executor) {
+        if (start >= paths.size()) return CompletableFuture.completedFuture(Collections.emptyMap());
+        return CompletableFuture.supplyAsync(() -> {
+            Map<String, byte[]> files = new LinkedHashMap<>();
+            try {
+                for (String path : paths.subList(start, Math.min(start + CLASS_BATCH_SIZE, paths.size()))) {
+                    byte[] bytes = output.getFile(path);
+                    if (bytes != null) {
+                        files.put(path, bytes);
+                    }
+                }
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+            return files;
+        }, executor);
+    }
+    
+    private void editNestedJars(List<Transformer> transformers, FileAccess output, TransformerScheduler scheduler) throws Exception {
+        for (String path : listFiles(output, ".jar")) {
+            scheduler.checkCancelled();
+            byte[] bytes = output.getFile(path);
+            if (bytes == null) continue;
+            try (TransformerEvents.Span ignored = TransformerEvents.phase("nested jar", path);
+                 MemoryFileAccess zipFile = MemoryFileAccess.ofZipFile(bytes)) {
+                // Not through handle, so the costs of nested jars are reported with their outer jar
+                schedule(path, zipFile, transformers).run(isConcurrent());
+                output.modifyFile(path, zipFile.asZipFile());
+            }
+        }
+    }
+    
+    private static List<String> listFiles(FileAccess output, String extension) throws IOException {
+        List<String> paths = new ArrayList<>();
+        output.handle(path -> {
+            if (path.endsWith(extension)) {
+                paths.add(path);
+            }
+        });
+        return paths;
+    }
+    
     private void applyTransforms(List<Transformer> transformers, String path, byte[] bytes, FileAccess output) throws IOException {
         ClassReader reader = new ClassReader(bytes);
         if ((reader.getAccess() & Opcodes.ACC_MODULE) == 0) {
-            ClassNode node = new ClassNode(Opcodes.ASM9);
-            reader.accept(node, ClassReader.EXPAND_FRAMES);
-            
-            if (shouldDelete(transformers, path, node)) {
-                output.deleteFile(path);
-                return;
+            TransformerCosts.Probe probe = costs.probe();
+            ClassNode node = null;
+            if (anyTransformerDeletesClass(transformers)) {
+                node = readNode(reader);
+                probe.charge(costs.get(TransformerCosts.CLASS_READ));
+                
+                if (shouldDelete(transformers, path, node, probe)) {
+                    output.deleteFile(path);
+                    return;
+                }
             }
             
             class State {
-                boolean computeMaxs = false, computeFrames = false;
+                boolean computeMaxs = false, computeFrames = false, edited = false;
+                TransformerCosts.Cost cost;
+                // The transformers the class is written for, which are charged for writing it
+                final Set<TransformerCosts.Cost> writers = new LinkedHashSet<>();
             }
             State state = new State();
+            List<TransformerEvents.Span> spans = new ArrayList<>(0);
             ClassEditTransformer.Options options = new ClassEditTransformer.Options() {
                 @Override
                 public void computeMaxs() {
                     state.computeMaxs = true;
+                    state.writers.add(state.cost);
                 }
                 
                 @Override
                 public void computeFrames() {
                     state.computeFrames = true;
+                    state.writers.add(state.cost);
                 }
             };
-            output.modifyFile(path, toByteArray(output, editNode(transformers, path, node, options), state.computeMaxs, state.computeFrames));
+            long checksum = node == null ? 0 : costs.checksum(node);
+            for (Transformer transformer : transformers) {
+                if (!(transformer instanceof ClassEditTransformer)) continue;
+                state.cost = costs.get(transformer);
+                probe.reset();
+                TransformerEvents.Span span = TransformerEvents.classEdit(transformer.getClass().getName(), path, bytes.length);
+                if (span != TransformerEvents.Span.NONE) spans.add(span);
+                // Renames before any tree edit are applied to the constant pool, falling back to the tree when they can't
+                if (!state.edited && transformer instanceof ClassRenameTransformer) {
+                    Remapper renamer = ((ClassRenameTransformer) transformer).getClassRenamer();
+                    if (renamer == null) {
+                        span.end();
+                        probe.charge(state.cost);
+                        state.cost.visited(false);
+                        continue;
+                    }
+                    byte[] renamed = ConstantPoolRemapper.remap(bytes, renamer);
+                    if (renamed != null) {
+                        span.end();
+                        probe.charge(state.cost);
+                        state.cost.visited(renamed != bytes);
+                        if (renamed != bytes) {
+                            bytes = renamed;
+                            node = null;
+                        }
+                        continue;
+                    }
+                }
+                if (node == null) {
+                    node = readNode(new ClassReader(bytes));
+                    probe.charge(costs.get(TransformerCosts.CLASS_READ));
+                    checksum = costs.checksum(node);
+                    probe.reset();
+                }
+                node = Objects.requireNonNull(((ClassEditTransformer) transformer).doEdit(path, node, options));
+                if (!((ClassEditTransformer) transformer).maintainsAnnotationIndex()) {
+                    AnnotationIndex.invalidate(node);
+                }
+                state.edited = true;
+                span.end();
+                probe.charge(state.cost);
+                if (costs.isEnabled()) {
+                    long previous = checksum;
+                    checksum = costs.checksum(node);
+                    state.cost.visited(checksum != previous);
+                }
+            }
+            byte[] result;
+            if (state.edited) {
+                try (TransformerEvents.Span ignored = TransformerEvents.phase("class write", path)) {
+                    probe.reset();
+                    result = toByteArray(output, node, state.computeMaxs, state.computeFrames);
+                    if (state.writers.isEmpty()) {
+                        probe.charge(costs.get(TransformerCosts.CLASS_WRITE));
+                    } else {
+                        probe.chargeWrite(state.writers);
+                    }
+                }
+            } else {
+                result = bytes;
+            }
+            for (TransformerEvents.Span span : spans) {
+                span.setOutputSize(result.length);
+                span.close();
+            }
+            output.modifyFile(path, result);
         }
     }
     
-    private boolean shouldDelete(List<Transformer> transformers, String path, ClassNode node) {
+    private static ClassNode readNode(ClassReader reader) {
+        ClassNode node = new ClassNode(Opcodes.ASM9);
+        reader.accept(AnnotationIndex.indexing(node), ClassReader.EXPAND_FRAMES);
+        return node;
+    }
+    
+    private boolean anyTransformerDeletesClass(List<Transformer> transformers) {
         for (Transformer transformer : transformers) {
             if (transformer instanceof ClassDeleteTransformer) {
-                if (((ClassDeleteTransformer) transformer).shouldDelete(path, node)) {
-                    return true;
-                }
+                return true;
             }
         }
         return false;
     }
     
-    private ClassNode editNode(List<Transformer> transformers, String path, ClassNode node, ClassEditTransformer.Options options) {
+    private boolean shouldDelete(List<Transformer> transformers, String path, ClassNode node, TransformerCosts.Probe probe) {
         for (Transformer transformer : transformers) {
-            if (transformer instanceof ClassEditTransformer) {
-                node = Objects.requireNonNull(((ClassEditTransformer) transformer).doEdit(path, node, options));
+            if (transformer instanceof ClassDeleteTransformer) {
+                boolean delete = ((ClassDeleteTransformer) transformer).shouldDelete(path, node);
+                probe.charge(costs.get(transformer));
+                costs.get(transformer).visited(delete);
+                if (delete) {
+                    return true;
+                }
             }
         }
-        
-        return node;
+        return false;
     }
     
     private byte[] toByteArray(FileAccess output, ClassNode node, boolean computeMaxs, boolean computeFrames) {
-        Logger.debug("Writing " + node.name + " with maxs=" + computeMaxs + " frames=" + computeFrames);
+        Logger.debug(() -> "Writing " + node.name + " with maxs=" + computeMaxs + " frames=" + computeFrames);
         final ClassWriter writer = new TransformerClassWriter(classpath, output, (computeMaxs ? ClassWriter.COMPUTE_MAXS : 0) | (computeFrames ? ClassWriter.COMPUTE_FRAMES : 0));
         node.accept(writer);
         return writer.toByteArray();
     }
     
-    private void editFiles(List<Transformer> transformers, FileAccess output) {
-        for (Transformer transformer : transformers) {
-            if (transformer instanceof AssetEditTransformer) {
-                try {
-                    ((AssetEditTransformer) transformer).doEdit(context, output);
-                } catch (Exception exception) {
-                    exception.printStackTrace();
+    private void editFile(AssetEditTransformer transformer, TransformerContext context, FileAccess output, @Nullable Map<String, byte[]> assets) {
+        try (TransformerEvents.Span ignored = TransformerEvents.phase("asset edit", transformer.getClass().getName())) {
+            TransformerCosts.Probe probe = costs.probe();
+            if (assets == null) {
+                transformer.doEdit(context, output);
+            } else {
+                transformer.doEdit(context, output, assets);
+            }
+            probe.charge(costs.get(transformer));
+        } catch (Exception exception) {
+            exception.printStackTrace();
+        }
+    }
+    
+    /**
+     * Assets of the transformers sharing a walk over the output, collected by whichever of them runs first.
+     * Transformers not sharing the walk collect their own assets when they run.
+     */
+    private static class SharedAssets {
+        private final FileAccess output;
+        private final Map<AssetEditTransformer, AssetInterest> interests = new IdentityHashMap<>();
+        private Map<AssetEditTransformer, Map<String, byte[]>> assets;
+        
+        private SharedAssets(FileAccess output) {
+            this.output = output;
+        }
+        
+        private void share(AssetEditTransformer transformer, AssetInterest interest) {
+            interests.put(transformer, interest);
+        }
+        
+        private synchronized Map<String, byte[]> get(AssetEditTransformer transformer, AssetInterest interest) throws IOException {
+            if (!interests.containsKey(transformer)) {
+                return interest.collect(output);
+            }
+            if (assets == null) {
+                assets = new IdentityHashMap<>();
+                AssetInterest union = AssetInterest.none();
+                for (Map.Entry<AssetEditTransformer, AssetInterest> entry : interests.entrySet()) {
+                    union = union.or(entry.getValue());
+                    assets.put(entry.getKey(), new LinkedHashMap<>());
+                }
+                for (Map.Entry<String, byte[]> asset : union.collect(output).entrySet()) {
+                    interests.forEach((sharing, sharingInterest) -> {
+                        if (sharingInterest.matches(asset.getKey())) {
+                            assets.get(sharing).put(asset.getKey(), asset.getValue());
+                        }
+                    });
                 }
             }
+            Map<String, byte[]> shared = assets.remove(transformer);
+            return shared != null ? shared : interest.collect(output);
         }
     }
     
@@ -28,11 +28,13 @@ import dev.architectury.transformer.input.FileAccess;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class ThreadLockedTransformHandler implements TransformHandler {
     private final TransformHandler parent;
     private final ReentrantLock lock = new ReentrantLock();
+    private final LongAdder lockWaitNanos = new LongAdder();
     
     ThreadLockedTransformHandler(TransformHandler parent) {
         this.parent = parent;
@@ -45,7 +47,11 @@ public class ThreadLockedTransformHandler implements TransformHandler {
     
     @Override
     public void handle(String input, FileAccess output, List<Transformer> transformers) throws Exception {
-        lock.lock();
+        if (!lock.tryLock()) {
+            long start = System.nanoTime();
+            lock.lock();
+            lockWaitNanos.add(System.nanoTime() - start);
+        }
         try {
             this.parent.handle(input, output, transformers);
         } finally {
@@ -53,6 +59,13 @@ public class ThreadLockedTransformHandler implements TransformHandler {
         }
     }
     
+    /**
+     * Returns the total time threads spent waiting for the lock in {@link #handle}, in nanoseconds.
+     */
+    public long getLockWaitTime() {
+        return lockWaitNanos.sum();
+    }
+    
     @Override
     public void close() throws IOException {
         lock.lock();
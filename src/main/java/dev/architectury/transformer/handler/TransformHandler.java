@@ -28,6 +28,8 @@ import dev.architectury.transformer.input.FileAccess;
 
 import java.io.Closeable;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public interface TransformHandler extends Closeable {
     default TransformHandler asThreadLocked() {
@@ -35,4 +37,22 @@ public interface TransformHandler extends Closeable {
     }
     
     void handle(String input, FileAccess output, List<Transformer> transformers) throws Exception;
+    
+    /**
+     * Transforms on the executor instead of the calling thread. Cancelling the returned future before the
+     * transformation started skips it, implementations may also stop a running transformation.
+     */
+    default CompletableFuture<Void> handleAsync(String input, FileAccess output, List<Transformer> transformers, Executor executor) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            if (future.isDone()) return;
+            try {
+                handle(input, output, transformers);
+                future.complete(null);
+            } catch (Throwable throwable) {
+                future.completeExceptionally(throwable);
+            }
+        });
+        return future;
+    }
 }
@@ -0,0 +1,252 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer.handler;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import dev.architectury.transformer.Transformer;
+import dev.architectury.transformer.transformers.BuiltinProperties;
+import dev.architectury.transformer.util.Logger;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.tree.ClassNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+/**
+ * Attributes the cost of a transformation to the transformers causing it: their own time and allocated bytes,
+ * the classes they visited and modified, and their share of writing the classes they asked frames or maxs for.
+ * Shared work, like reading classes, writing classes nobody asked frames or maxs for, or remapping, is charged to
+ * pseudo entries in parentheses.
+ * <p>
+ * Enabled with {@link BuiltinProperties#COST_REPORT}, the report is written next to the debug log as
+ * {@code costs.json} and {@code costs.txt}, and covers everything the handler transformed so far.
+ */
+public class TransformerCosts {
+    public static final String CLASS_READ = "(class read)";
+    public static final String CLASS_WRITE = "(class write)";
+    public static final String REMAP = "(remap)";
+    private static final TransformerCosts DISABLED = new TransformerCosts(false);
+    private final boolean enabled;
+    private final Map<String, Cost> costs = new ConcurrentHashMap<>();
+    
+    private TransformerCosts(boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    public static TransformerCosts create() {
+        return System.getProperty(BuiltinProperties.COST_REPORT, "false").equals("true") ? new TransformerCosts(true) : DISABLED;
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public Cost get(Transformer transformer) {
+        return get(transformer.getClass().getName());
+    }
+    
+    public Cost get(String name) {
+        if (!enabled) return Cost.NONE;
+        return costs.computeIfAbsent(name, $ -> new Cost());
+    }
+    
+    /**
+     * Starts measuring the time and allocations of the current thread.
+     */
+    public Probe probe() {
+        return enabled ? new Probe(true) : Probe.NONE;
+    }
+    
+    /**
+     * A checksum of the class, to tell whether a transformer modified it.
+     */
+    public long checksum(ClassNode node) {
+        if (!enabled) return 0;
+        try {
+            ClassWriter writer = new ClassWriter(0);
+            node.accept(writer);
+            CRC32 crc = new CRC32();
+            crc.update(writer.toByteArray());
+            return crc.getValue();
+        } catch (RuntimeException exception) {
+            // Not writable as it is, so it can't be the class we read
+            return -1;
+        }
+    }
+    
+    public void write(String input) {
+        if (!enabled) return;
+        List<Map.Entry<String, Cost>> entries = new ArrayList<>(costs.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<String, Cost> entry) -> entry.getValue().getTotalNanos()).reversed());
+        JsonObject json = new JsonObject();
+        json.addProperty("input", input);
+        json.addProperty("allocationsMeasured", Allocations.SUPPORTED);
+        JsonArray array = new JsonArray();
+        StringBuilder text = new StringBuilder("Transformer costs, last input " + input + ":" + System.lineSeparator());
+        text.append(String.format(Locale.ROOT, "%-72s %10s %10s %10s %10s %8s %8s%n", "transformer", "time", "alloc", "write", "write alloc", "visited", "modified"));
+        for (Map.Entry<String, Cost> entry : entries) {
+            Cost cost = entry.getValue();
+            JsonObject object = new JsonObject();
+            object.addProperty("transformer", entry.getKey());
+            object.addProperty("nanos", cost.nanos.sum());
+            object.addProperty("allocatedBytes", cost.allocatedBytes.sum());
+            object.addProperty("writeNanos", cost.writeNanos.sum());
+            object.addProperty("writeAllocatedBytes", cost.writeAllocatedBytes.sum());
+            object.addProperty("classesVisited", cost.classesVisited.sum());
+            object.addProperty("classesModified", cost.classesModified.sum());
+            array.add(object);
+            text.append(String.format(Locale.ROOT, "%-72s %10s %10s %10s %10s %8d %8d%n", entry.getKey(), formatNanos(cost.nanos.sum()), formatBytes(cost.allocatedBytes.sum()),
+                    formatNanos(cost.writeNanos.sum()), formatBytes(cost.writeAllocatedBytes.sum()), cost.classesVisited.sum(), cost.classesModified.sum()));
+        }
+        json.add("transformers", array);
+        File directory = Logger.getDirectory();
+        try {
+            Files.createDirectories(directory.toPath());
+            try (Writer writer = Files.newBufferedWriter(directory.toPath().resolve("costs.json"), StandardCharsets.UTF_8)) {
+                new GsonBuilder().setPrettyPrinting().create().toJson(json, writer);
+            }
+            Files.write(directory.toPath().resolve("costs.txt"), text.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException exception) {
+            Logger.error("Failed to write the transformer cost report: " + exception);
+        }
+    }
+    
+    private static String formatNanos(long nanos) {
+        return String.format(Locale.ROOT, "%.1f ms", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+    
+    private static String formatBytes(long bytes) {
+        return Allocations.SUPPORTED ? String.format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024.0)) : "n/a";
+    }
+    
+    /**
+     * Only loaded once a report is enabled, as {@code com.sun.management} is not part of every JVM.
+     */
+    private static class Allocations {
+        private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+        private static final boolean SUPPORTED = isSupported();
+        
+        private static boolean isSupported() {
+            try {
+                return THREADS instanceof com.sun.management.ThreadMXBean
+                       && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemorySupported()
+                       && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemoryEnabled();
+            } catch (LinkageError error) {
+                return false;
+            }
+        }
+        
+        private static long current() {
+            return SUPPORTED ? ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+        }
+    }
+    
+    public static class Cost {
+        private static final Cost NONE = new Cost();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+        private final LongAdder writeNanos = new LongAdder();
+        private final LongAdder writeAllocatedBytes = new LongAdder();
+        private final LongAdder classesVisited = new LongAdder();
+        private final LongAdder classesModified = new LongAdder();
+        
+        private Cost() {
+        }
+        
+        public void visited(boolean modified) {
+            if (this == NONE) return;
+            classesVisited.increment();
+            if (modified) {
+                classesModified.increment();
+            }
+        }
+        
+        private long getTotalNanos() {
+            return nanos.sum() + writeNanos.sum();
+        }
+    }
+    
+    /**
+     * Measures the current thread, each charge covers the time and allocations since the previous charge or reset.
+     */
+    public static class Probe {
+        private static final Probe NONE = new Probe(false);
+        private long nanos;
+        private long allocatedBytes;
+        
+        private Probe(boolean measure) {
+            if (measure) {
+                reset();
+            }
+        }
+        
+        private static long allocatedBytes() {
+            return Allocations.current();
+        }
+        
+        /**
+         * Leaves out the work since the previous charge, e.g. the bookkeeping of the report.
+         */
+        public void reset() {
+            if (this == NONE) return;
+            nanos = System.nanoTime();
+            allocatedBytes = allocatedBytes();
+        }
+        
+        public void charge(Cost cost) {
+            if (this == NONE) return;
+            long now = System.nanoTime(), allocated = allocatedBytes();
+            cost.nanos.add(now - nanos);
+            cost.allocatedBytes.add(allocated - allocatedBytes);
+            nanos = now;
+            allocatedBytes = allocated;
+        }
+        
+        /**
+         * Splits the cost of writing a class between the transformers that asked for it.
+         */
+        public void chargeWrite(Collection<Cost> costs) {
+            if (this == NONE || costs.isEmpty()) return;
+            long now = System.nanoTime(), allocated = allocatedBytes();
+            for (Cost cost : costs) {
+                cost.writeNanos.add((now - nanos) / costs.size());
+                cost.writeAllocatedBytes.add((allocated - allocatedBytes) / costs.size());
+            }
+            nanos = now;
+            allocatedBytes = allocated;
+        }
+    }
+}
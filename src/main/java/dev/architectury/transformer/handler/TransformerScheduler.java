@@ -0,0 +1,260 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer.handler;
+
+import dev.architectury.transformer.transformers.base.TransformerAccess;
+import dev.architectury.transformer.util.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs transformer steps as a DAG built from their declared reads and writes. A step depends on every earlier step
+ * it conflicts with, steps without conflicts run concurrently.
+ */
+public class TransformerScheduler {
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+        
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "Architectury Transformer Scheduler #" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private static final Executor DIRECT = Runnable::run;
+    private static final List<StepListener> LISTENERS = new CopyOnWriteArrayList<>();
+    private final List<Step> steps = new ArrayList<>();
+    private volatile boolean cancelled = false;
+    private volatile Executor executor = DIRECT;
+    
+    public Step add(String name, TransformerAccess reads, TransformerAccess writes, StepAction action) {
+        Step step = new Step(name, reads, writes, action);
+        for (Step previous : steps) {
+            if (previous.conflictsWith(step)) {
+                step.dependencies.add(previous);
+            }
+        }
+        steps.add(step);
+        return step;
+    }
+    
+    public List<Step> getSteps() {
+        return Collections.unmodifiableList(steps);
+    }
+    
+    /**
+     * Runs the steps, only overlapping independent steps if concurrent.
+     */
+    public void run(boolean concurrent) throws Exception {
+        join(runAsync(concurrent && !isSequential() ? EXECUTOR : DIRECT));
+    }
+    
+    /**
+     * Runs every step on the executor once its dependencies completed. Cancelling the returned future skips
+     * the steps which have not started yet, and running steps stop at their next {@link #checkCancelled()}.
+     * The future is only cancelled once every started step has returned.
+     */
+    public CompletableFuture<Void> runAsync(Executor executor) {
+        this.executor = executor;
+        List<CompletableFuture<Void>> futures = new ArrayList<>(steps.size());
+        for (Step step : steps) {
+            CompletableFuture<?>[] dependencies = step.dependencies.stream()
+                    .map(dependency -> futures.get(steps.indexOf(dependency)))
+                    .toArray(CompletableFuture[]::new);
+            futures.add(CompletableFuture.allOf(dependencies).thenRunAsync(() -> {
+                try {
+                    checkCancelled();
+                    Logger.debug(() -> "Running step " + step.name + " after " + step.dependencies.size() + " dependency(s)");
+                    if (LISTENERS.isEmpty()) {
+                        step.action.run();
+                    } else {
+                        long start = System.nanoTime();
+                        step.action.run();
+                        long duration = System.nanoTime() - start;
+                        for (StepListener listener : LISTENERS) {
+                            listener.onStepCompleted(step.name, duration);
+                        }
+                    }
+                } catch (Exception exception) {
+                    throw exception instanceof CompletionException ? (CompletionException) exception : new CompletionException(exception);
+                }
+            }, executor));
+        }
+        CompletableFuture<Void> result = new CompletableFuture<Void>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                // Only flags the steps, the future is cancelled once the running ones stopped and left the output alone
+                if (isDone()) return false;
+                cancelled = true;
+                return true;
+            }
+        };
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).whenComplete((unused, throwable) -> {
+            if (cancelled) {
+                result.completeExceptionally(new CancellationException("Transformation was cancelled"));
+            } else if (throwable != null) {
+                result.completeExceptionally(unwrap(throwable));
+            } else {
+                result.complete(null);
+            }
+        });
+        return result;
+    }
+    
+    /**
+     * Adds a listener notified of every completed step of every scheduler, used to measure phases.
+     */
+    public static void addListener(StepListener listener) {
+        LISTENERS.add(listener);
+    }
+    
+    public static void removeListener(StepListener listener) {
+        LISTENERS.remove(listener);
+    }
+    
+    /**
+     * Returns the executor for work a step pipelines and then waits on. This is never the executor of the run,
+     * a step blocking on work queued behind itself on a single thread or saturated pool would never finish.
+     */
+    public Executor getPipelineExecutor() {
+        return executor == DIRECT ? DIRECT : EXECUTOR;
+    }
+    
+    public boolean isCancelled() {
+        return cancelled;
+    }
+    
+    public void checkCancelled() {
+        if (cancelled) throw new CancellationException("Transformation was cancelled");
+    }
+    
+    /**
+     * Returns a future completing like the given one once the action ran after it, cancelling it cancels the given one.
+     */
+    public static <T> CompletableFuture<T> andFinally(CompletableFuture<T> future, StepAction action) {
+        CompletableFuture<T> result = new CompletableFuture<T>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                return future.cancel(mayInterruptIfRunning);
+            }
+        };
+        future.whenComplete((value, throwable) -> {
+            try {
+                action.run();
+            } catch (Exception exception) {
+                if (throwable == null) {
+                    result.completeExceptionally(exception);
+                    return;
+                }
+                throwable.addSuppressed(exception);
+            }
+            if (throwable != null) {
+                result.completeExceptionally(unwrap(throwable));
+            } else {
+                result.complete(value);
+            }
+        });
+        return result;
+    }
+    
+    /**
+     * Waits for the future, rethrowing its failure as is.
+     */
+    public static <T> T join(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.join();
+        } catch (CompletionException exception) {
+            Throwable cause = unwrap(exception);
+            if (cause instanceof Exception) throw (Exception) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw exception;
+        }
+    }
+    
+    private static Throwable unwrap(Throwable throwable) {
+        while (throwable instanceof CompletionException && throwable.getCause() != null) {
+            throwable = throwable.getCause();
+        }
+        return throwable;
+    }
+    
+    /**
+     * Returns whether every step depends on the one before it, in which case nothing can overlap.
+     */
+    private boolean isSequential() {
+        for (int i = 1; i < steps.size(); i++) {
+            if (!steps.get(i).dependencies.contains(steps.get(i - 1))) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    @FunctionalInterface
+    public interface StepListener {
+        void onStepCompleted(String name, long durationNanos);
+    }
+    
+    @FunctionalInterface
+    public interface StepAction {
+        void run() throws Exception;
+    }
+    
+    public static final class Step {
+        private final String name;
+        private final TransformerAccess reads;
+        private final TransformerAccess writes;
+        private final StepAction action;
+        private final List<Step> dependencies = new ArrayList<>();
+        
+        private Step(String name, TransformerAccess reads, TransformerAccess writes, StepAction action) {
+            this.name = name;
+            this.reads = reads;
+            this.writes = writes;
+            this.action = action;
+        }
+        
+        private boolean conflictsWith(Step other) {
+            return writes.overlaps(other.reads) || writes.overlaps(other.writes) || reads.overlaps(other.writes);
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        public List<Step> getDependencies() {
+            return Collections.unmodifiableList(dependencies);
+        }
+        
+        @Override
+        public String toString() {
+            return name + " (reads " + reads + ", writes " + writes + ")";
+        }
+    }
+}
@@ -24,12 +24,13 @@
 package dev.architectury.transformer.input;
 
 import dev.architectury.transformer.util.ClosableChecker;
+import dev.architectury.transformer.util.MemoryBudget;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.UnaryOperator;
@@ -37,15 +38,24 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public abstract class BaseFileAccess extends ClosableChecker implements FileAccess {
-    private final Map<String, byte[]> cache = new HashMap<>();
+    // Concurrent, as the memory budget may evict it from any thread
+    private final Map<String, byte[]> cache = new ConcurrentHashMap<>();
     private final boolean shouldCache;
+    @Nullable
+    private final MemoryBudget.Account cacheAccount;
     
     public BaseFileAccess(boolean shouldCache) {
         this.shouldCache = shouldCache;
+        this.cacheAccount = shouldCache ? MemoryBudget.INSTANCE.register("file access cache", this, (access, bytes) -> access.clearCache()) : null;
     }
     
     protected void clearCache() {
-        this.cache.clear();
+        // Subtracts every removed entry on its own, an entry cached concurrently is accounted exactly once either way
+        for (Map.Entry<String, byte[]> entry : cache.entrySet()) {
+            if (cache.remove(entry.getKey(), entry.getValue()) && cacheAccount != null) {
+                cacheAccount.add(-entry.getValue().length);
+            }
+        }
     }
     
     @Override
@@ -60,7 +70,15 @@ public abstract class BaseFileAccess extends ClosableChecker implements FileAcce
     
     private byte[] cacheRead(String path) {
         if (this.shouldCache) {
-            return cache.computeIfAbsent(path, this::_cacheRead);
+            byte[] cached = cache.get(path);
+            if (cached != null) return cached;
+            // Accounted outside of the map operation, as the budget may clear the cache right away
+            byte[] bytes = _cacheRead(path);
+            if (bytes == null) return null;
+            cached = cache.putIfAbsent(path, bytes);
+            if (cached != null) return cached;
+            cacheAccount.add(bytes.length);
+            return bytes;
         }
         
         return _cacheRead(path);
@@ -119,6 +137,9 @@ public abstract class BaseFileAccess extends ClosableChecker implements FileAcce
     public void close() throws IOException {
         closeAndValidate();
         clearCache();
+        if (cacheAccount != null) {
+            cacheAccount.close();
+        }
     }
     
     @Override
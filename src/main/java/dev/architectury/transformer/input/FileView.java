@@ -25,10 +25,13 @@ package dev.architectury.transformer.input;
 
 import dev.architectury.transformer.Transform;
 import dev.architectury.transformer.util.Logger;
+import dev.architectury.transformer.util.ReproducibleOutput;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
@@ -83,6 +86,12 @@ public interface FileView extends ClosedIndicator {
     }
     
     default byte[] asZipFile() throws IOException {
+        if (ReproducibleOutput.isEnabled()) {
+            Map<String, byte[]> entries = new LinkedHashMap<>();
+            handle(entries::put);
+            return ReproducibleOutput.toZip(entries);
+        }
+        
         ByteArrayOutputStream stream = new ByteArrayOutputStream(8192);
         try (ZipOutputStream zos = new ZipOutputStream(stream)) {
             handle((path, bytes) -> {
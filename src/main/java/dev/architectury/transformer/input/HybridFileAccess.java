@@ -0,0 +1,184 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer.input;
+
+import dev.architectury.transformer.Transform;
+import dev.architectury.transformer.transformers.BuiltinProperties;
+import dev.architectury.transformer.util.Logger;
+import dev.architectury.transformer.util.MemoryBudget;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A {@link MemoryFileAccess} keeping small entries on heap. Entries of at least {@link BuiltinProperties#SPILL_ENTRY_SIZE},
+ * and every entry once the heap entries exceed {@link BuiltinProperties#SPILL_THRESHOLD}, are appended to a temp file
+ * and read back through a memory mapping. Heap entries are also spilled, largest first, when the
+ * {@link MemoryBudget} asks for memory back.
+ * <p>
+ * The temp file only grows, space of deleted or replaced entries is given back once the file access is closed.
+ */
+public class HybridFileAccess extends MemoryFileAccess {
+    private final Map<String, byte[]> heap;
+    private final Map<String, SpillFile.Extent> spilled = new HashMap<>();
+    private final long entrySize;
+    private final long threshold;
+    private long heapBytes = 0;
+    @Nullable
+    private SpillFile spill;
+    
+    private HybridFileAccess(Map<String, byte[]> heap, long entrySize, long threshold) {
+        super(heap, (access, bytes) -> ((HybridFileAccess) access).reclaim(bytes));
+        this.heap = heap;
+        this.entrySize = entrySize;
+        this.threshold = threshold;
+    }
+    
+    /**
+     * Returns whether {@link MemoryFileAccess#of()} spills, which it does once spilling or a memory budget is configured.
+     */
+    public static boolean isEnabled() {
+        return System.getProperty(BuiltinProperties.SPILL_ENTRY_SIZE) != null || System.getProperty(BuiltinProperties.SPILL_THRESHOLD) != null
+               || MemoryBudget.INSTANCE.getBudget() > 0;
+    }
+    
+    public static HybridFileAccess of() {
+        return of(MemoryBudget.parseSize(System.getProperty(BuiltinProperties.SPILL_ENTRY_SIZE, "1m")),
+                MemoryBudget.parseSize(System.getProperty(BuiltinProperties.SPILL_THRESHOLD)));
+    }
+    
+    /**
+     * @param entrySize entries of at least this size are spilled, or 0 to not spill by size
+     * @param threshold entries are spilled once the heap entries exceed this size, or 0 to not spill by usage
+     */
+    public static HybridFileAccess of(long entrySize, long threshold) {
+        return new HybridFileAccess(new HashMap<>(), entrySize, threshold);
+    }
+    
+    private static String format(String path) {
+        return Transform.trimSlashes(path);
+    }
+    
+    @Override
+    protected synchronized boolean exists(String path) {
+        return spilled.containsKey(format(path)) || super.exists(path);
+    }
+    
+    @Override
+    protected synchronized byte[] read(String path) throws IOException {
+        SpillFile.Extent extent = spilled.get(format(path));
+        if (extent != null) {
+            return spill.read(extent);
+        }
+        return super.read(path);
+    }
+    
+    @Override
+    protected synchronized void write(String path, byte[] bytes) throws IOException {
+        String key = format(path);
+        spilled.remove(key);
+        if (bytes.length > 0 && ((entrySize > 0 && bytes.length >= entrySize) || (threshold > 0 && heapBytes + bytes.length > threshold))) {
+            removeFromHeap(key);
+            spilled.put(key, spill().append(bytes));
+        } else {
+            byte[] previous = heap.get(key);
+            heapBytes += bytes.length - (previous == null ? 0 : previous.length);
+            super.write(key, bytes);
+        }
+    }
+    
+    @Override
+    public synchronized boolean deleteFile(String path) throws IOException {
+        String key = format(path);
+        return spilled.remove(key) != null | removeFromHeap(key);
+    }
+    
+    private boolean removeFromHeap(String key) throws IOException {
+        byte[] previous = heap.get(key);
+        if (previous == null) return false;
+        heapBytes -= previous.length;
+        return super.deleteFile(key);
+    }
+    
+    @Override
+    protected synchronized Stream<String> walk(@Nullable String path) throws IOException {
+        // Collected right away, the entries may move to disk while walking
+        List<String> paths;
+        try (Stream<String> stream = super.walk(path)) {
+            paths = stream.collect(Collectors.toCollection(ArrayList::new));
+        }
+        String prefix = path == null ? null : format(path) + "/";
+        for (String key : spilled.keySet()) {
+            if (prefix == null || key.startsWith(prefix)) {
+                paths.add(key);
+            }
+        }
+        return paths.stream();
+    }
+    
+    private SpillFile spill() throws IOException {
+        if (spill == null) {
+            spill = SpillFile.create();
+        }
+        return spill;
+    }
+    
+    /**
+     * Spills the largest heap entries until at least the given number of bytes left the heap.
+     */
+    private synchronized void reclaim(long bytes) {
+        if (isClosed()) return;
+        List<Map.Entry<String, byte[]>> entries = new ArrayList<>(heap.entrySet());
+        entries.sort(Comparator.comparingInt((Map.Entry<String, byte[]> entry) -> entry.getValue().length).reversed());
+        long reclaimed = 0;
+        try {
+            for (Map.Entry<String, byte[]> entry : entries) {
+                if (reclaimed >= bytes || entry.getValue().length == 0) break;
+                SpillFile.Extent extent = spill().append(entry.getValue());
+                removeFromHeap(entry.getKey());
+                spilled.put(entry.getKey(), extent);
+                reclaimed += entry.getValue().length;
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        long spilledBytes = reclaimed;
+        Logger.debug(() -> "Spilled " + MemoryBudget.formatBytes(spilledBytes) + " of memory file access entries to disk");
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        super.close();
+        spilled.clear();
+        heapBytes = 0;
+        if (spill != null) {
+            spill.close();
+            spill = null;
+        }
+    }
+}
@@ -25,6 +25,7 @@ package dev.architectury.transformer.input;
 
 import com.google.common.io.ByteStreams;
 import dev.architectury.transformer.Transform;
+import dev.architectury.transformer.util.MemoryBudget;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.ByteArrayInputStream;
@@ -38,14 +39,28 @@ import java.util.zip.ZipInputStream;
 
 public class MemoryFileAccess extends BaseFileAccess {
     private final Map<String, byte[]> data;
+    private final MemoryBudget.Account account;
     
     protected MemoryFileAccess(Map<String, byte[]> data) {
+        this(data, null);
+    }
+    
+    protected MemoryFileAccess(Map<String, byte[]> data, @Nullable MemoryBudget.Reclaimer<MemoryFileAccess> reclaimer) {
         super(false);
         this.data = data;
+        this.account = MemoryBudget.INSTANCE.register("memory file access", this, reclaimer);
+        long bytes = 0;
+        for (byte[] value : data.values()) {
+            bytes += value.length;
+        }
+        account.add(bytes);
     }
     
+    /**
+     * Returns an empty file access, which spills to disk if {@link HybridFileAccess#isEnabled() enabled}.
+     */
     public static MemoryFileAccess of() throws IOException {
-        return of(new HashMap<>());
+        return HybridFileAccess.isEnabled() ? HybridFileAccess.of() : of(new HashMap<>());
     }
     
     public static MemoryFileAccess of(Map<String, byte[]> data) throws IOException {
@@ -83,12 +98,16 @@ public class MemoryFileAccess extends BaseFileAccess {
     
     @Override
     protected void write(String path, byte[] bytes) throws IOException {
-        data.put(format(path), bytes);
+        byte[] previous = data.put(format(path), bytes);
+        account.add(bytes.length - (previous == null ? 0 : previous.length));
     }
     
     @Override
     public boolean deleteFile(String path) throws IOException {
-        return data.remove(format(path)) != null;
+        byte[] previous = data.remove(format(path));
+        if (previous == null) return false;
+        account.add(-previous.length);
+        return true;
     }
     
     @Override
@@ -105,5 +124,6 @@ public class MemoryFileAccess extends BaseFileAccess {
     public void close() throws IOException {
         super.close();
         data.clear();
+        account.close();
     }
 }
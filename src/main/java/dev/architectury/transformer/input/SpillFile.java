@@ -0,0 +1,138 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer.input;
+
+import dev.architectury.transformer.Transform;
+import dev.architectury.transformer.util.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An append-only temp file written and read through memory mapped segments. Entries never cross a segment,
+ * entries larger than a segment get a segment of their own. Segments double in size up to {@link #MAX_SEGMENT_SIZE},
+ * so the file stays close to the spilled bytes. The file is deleted when closed, files that could not be deleted
+ * because they were still mapped are deleted by the next process spilling to the same cache directory.
+ */
+final class SpillFile implements Closeable {
+    private static final int MIN_SEGMENT_SIZE = 1024 * 1024;
+    private static final int MAX_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final AtomicBoolean CLEANED = new AtomicBoolean();
+    private final Path path;
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private long mapped = 0;
+    private int offset = 0;
+    
+    private SpillFile(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+    }
+    
+    static SpillFile create() throws IOException {
+        Path directory = Transform.getCacheDirectory().resolve("spill");
+        Files.createDirectories(directory);
+        if (CLEANED.compareAndSet(false, true)) {
+            deleteStale(directory);
+        }
+        Path path = Files.createTempFile(directory, "spill", ".bin");
+        return new SpillFile(path, FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE));
+    }
+    
+    /**
+     * Deletes the spill files left behind by earlier processes, files still open elsewhere cannot be deleted
+     * on Windows and are left alone, everywhere else open files were already unlinked when they were opened.
+     */
+    private static void deleteStale(Path directory) {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "spill*.bin")) {
+            for (Path stale : stream) {
+                try {
+                    Files.deleteIfExists(stale);
+                } catch (IOException ignored) {
+                }
+            }
+        } catch (IOException exception) {
+            Logger.debug("Failed to delete stale spill files in " + directory + ": " + exception);
+        }
+    }
+    
+    Extent append(byte[] bytes) throws IOException {
+        MappedByteBuffer segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (segment == null || segment.capacity() - offset < bytes.length) {
+            int size = segment == null ? MIN_SEGMENT_SIZE : Math.min(MAX_SEGMENT_SIZE, segment.capacity() * 2);
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, mapped, Math.max(size, bytes.length));
+            segments.add(segment);
+            mapped += segment.capacity();
+            offset = 0;
+        }
+        ByteBuffer buffer = segment.duplicate();
+        buffer.position(offset);
+        buffer.put(bytes);
+        Extent extent = new Extent(segments.size() - 1, offset, bytes.length);
+        offset += bytes.length;
+        return extent;
+    }
+    
+    byte[] read(Extent extent) {
+        ByteBuffer buffer = segments.get(extent.segment).duplicate();
+        buffer.position(extent.offset);
+        byte[] bytes = new byte[extent.length];
+        buffer.get(bytes);
+        return bytes;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        // The mappings stay valid until they are collected, dropping them lets the file go
+        segments.clear();
+        channel.close();
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // Still mapped on Windows, deleted by the next process instead
+        }
+    }
+    
+    static final class Extent {
+        private final int segment;
+        private final int offset;
+        private final int length;
+        
+        private Extent(int segment, int offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer.input;
+
+import java.io.IOException;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A {@link FileAccess} serializing every access to its parent, so that it can be shared by concurrent edits.
+ * {@link #modifyFile(String, UnaryOperator)} runs the action outside of the lock.
+ */
+public class SynchronizedFileAccess implements ForwardingFileAccess {
+    private final FileAccess parent;
+    private final Object lock = new Object();
+    
+    protected SynchronizedFileAccess(FileAccess parent) {
+        this.parent = parent;
+    }
+    
+    public static SynchronizedFileAccess of(FileAccess parent) {
+        if (parent instanceof SynchronizedFileAccess) return (SynchronizedFileAccess) parent;
+        return new SynchronizedFileAccess(parent);
+    }
+    
+    @Override
+    public FileAccess parent() {
+        return parent;
+    }
+    
+    @Override
+    public boolean isClosed() {
+        synchronized (lock) {
+            return parent.isClosed();
+        }
+    }
+    
+    @Override
+    public void handle(BiConsumer<String, byte[]> action) throws IOException {
+        synchronized (lock) {
+            parent.handle(action);
+        }
+    }
+    
+    @Override
+    public void handle(Consumer<String> action) throws IOException {
+        synchronized (lock) {
+            parent.handle(action);
+        }
+    }
+    
+    @Override
+    public void handle(Predicate<String> pathPredicate, BiConsumer<String, byte[]> action) throws IOException {
+        synchronized (lock) {
+            parent.handle(pathPredicate, action);
+        }
+    }
+    
+    @Override
+    public boolean addFile(String path, byte[] bytes) throws IOException {
+        synchronized (lock) {
+            return parent.addFile(path, bytes);
+        }
+    }
+    
+    @Override
+    public byte[] modifyFile(String path, byte[] bytes) throws IOException {
+        synchronized (lock) {
+            return parent.modifyFile(path, bytes);
+        }
+    }
+    
+    @Override
+    public byte[] modifyFile(String path, UnaryOperator<byte[]> action) throws IOException {
+        byte[] bytes = getFile(path);
+        if (bytes == null) return null;
+        try {
+            bytes = action.apply(bytes);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to modify " + path, e);
+        }
+        return modifyFile(path, bytes);
+    }
+    
+    @Override
+    public boolean deleteFile(String path) throws IOException {
+        synchronized (lock) {
+            return parent.deleteFile(path);
+        }
+    }
+    
+    @Override
+    public void modifyFiles(Predicate<String> pathPredicate, BiFunction<String, byte[], byte[]> action) throws IOException {
+        synchronized (lock) {
+            parent.modifyFiles(pathPredicate, action);
+        }
+    }
+    
+    @Override
+    public void modifyFiles(BiFunction<String, byte[], byte[]> action) throws IOException {
+        synchronized (lock) {
+            parent.modifyFiles(action);
+        }
+    }
+    
+    @Override
+    public boolean addFile(String path, String text) throws IOException {
+        synchronized (lock) {
+            return parent.addFile(path, text);
+        }
+    }
+    
+    @Override
+    public boolean addClass(String path, byte[] bytes) throws IOException {
+        synchronized (lock) {
+            return parent.addClass(path, bytes);
+        }
+    }
+    
+    @Override
+    public void deleteFiles(BiPredicate<String, byte[]> filePredicate) throws IOException {
+        synchronized (lock) {
+            parent.deleteFiles(filePredicate);
+        }
+    }
+    
+    @Override
+    public void deleteFiles(Predicate<String> pathPredicate) throws IOException {
+        synchronized (lock) {
+            parent.deleteFiles(pathPredicate);
+        }
+    }
+    
+    @Override
+    public boolean deleteClass(String path) throws IOException {
+        synchronized (lock) {
+            return parent.deleteClass(path);
+        }
+    }
+    
+    @Override
+    public byte[] getFile(String path) throws IOException {
+        synchronized (lock) {
+            return parent.getFile(path);
+        }
+    }
+    
+    @Override
+    public void copyTo(FileAccess output) throws IOException {
+        synchronized (lock) {
+            parent.copyTo(output);
+        }
+    }
+    
+    @Override
+    public void copyTo(Predicate<String> pathPredicate, FileAccess output) throws IOException {
+        synchronized (lock) {
+            parent.copyTo(pathPredicate, output);
+        }
+    }
+    
+    @Override
+    public byte[] asZipFile() throws IOException {
+        synchronized (lock) {
+            return parent.asZipFile();
+        }
+    }
+    
+    @Override
+    public MemoryFileAccess remember() throws IOException {
+        synchronized (lock) {
+            return parent.remember();
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            parent.close();
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return parent.toString();
+    }
+}
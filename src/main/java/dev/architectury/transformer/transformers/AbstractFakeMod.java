@@ -23,12 +23,33 @@
 
 package dev.architectury.transformer.transformers;
 
+import dev.architectury.transformer.input.FileView;
 import dev.architectury.transformer.transformers.base.AssetEditTransformer;
+import dev.architectury.transformer.transformers.base.AssetInterest;
+import dev.architectury.transformer.util.ReproducibleOutput;
 
+import java.io.IOException;
 import java.util.UUID;
 
 public abstract class AbstractFakeMod implements AssetEditTransformer {
+    @Override
+    public AssetInterest getAssetInterest() {
+        // The reproducible mod id hashes the whole output
+        return ReproducibleOutput.isEnabled() ? AssetInterest.all() : AssetInterest.none();
+    }
+    
     protected String generateModId() {
         return "generated_" + UUID.randomUUID().toString().substring(0, 7);
     }
+    
+    /**
+     * Generates the mod id from the content of the output in reproducible mode, and randomly otherwise.
+     */
+    protected String generateModId(FileView output) throws IOException {
+        if (ReproducibleOutput.isEnabled()) {
+            return "generated_" + ReproducibleOutput.contentHash(output).substring(0, 7);
+        }
+        
+        return generateModId();
+    }
 }
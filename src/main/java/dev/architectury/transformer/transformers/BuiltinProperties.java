@@ -27,6 +27,13 @@ public class BuiltinProperties {
     public static final String VERBOSE = "architectury.transformer.verbose";
     public static final String DEBUG_OUTPUT = "architectury.transformer.debug_output";
     public static final String LOCATION = "architectury.transformer.location";
+    public static final String CACHE_LOCATION = "architectury.transformer.cache";
+    public static final String REPRODUCIBLE = "architectury.transformer.reproducible";
+    public static final String LOG_LEVEL = "architectury.transformer.log.level";
+    public static final String COST_REPORT = "architectury.transformer.cost_report";
+    public static final String MEMORY_BUDGET = "architectury.transformer.memory_budget";
+    public static final String SPILL_ENTRY_SIZE = "architectury.transformer.spill.entry_size";
+    public static final String SPILL_THRESHOLD = "architectury.transformer.spill.threshold";
     public static final String MIXIN_MAPPINGS = "architectury.mixin.mappings";
     public static final String INJECT_INJECTABLES = "architectury.inject.injectables";
     public static final String UNIQUE_IDENTIFIER = "architectury.unique.identifier";
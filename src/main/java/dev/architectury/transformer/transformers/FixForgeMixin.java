@@ -23,26 +23,19 @@
 
 package dev.architectury.transformer.transformers;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonObject;
-import dev.architectury.refmapremapper.RefmapRemapper;
-import dev.architectury.refmapremapper.remapper.MappingsRemapper;
-import dev.architectury.refmapremapper.remapper.Remapper;
 import dev.architectury.refmapremapper.remapper.SimpleReferenceRemapper;
 import dev.architectury.transformer.Transform;
 import dev.architectury.transformer.input.FileAccess;
 import dev.architectury.transformer.transformers.base.AssetEditTransformer;
+import dev.architectury.transformer.transformers.base.AssetInterest;
+import dev.architectury.transformer.transformers.base.TransformerAccess;
 import dev.architectury.transformer.transformers.base.edit.TransformerContext;
+import dev.architectury.transformer.transformers.mappings.IntermediarySrgIndex;
 import dev.architectury.transformer.util.Logger;
-import net.fabricmc.mapping.tree.*;
+import dev.architectury.transformer.util.ReproducibleOutput;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.*;
 import java.util.jar.Manifest;
 
@@ -50,41 +43,40 @@ import java.util.jar.Manifest;
  * Adds mixins to the MixinConfigs field in the manifest, and remap intermediary refmap to srg.
  */
 public class FixForgeMixin implements AssetEditTransformer {
-    private TinyTree srg;
-    private Map<String, Mapped> srgMap;
+    private static final String MANIFEST = "META-INF/MANIFEST.MF";
+    
+    @Override
+    public AssetInterest getAssetInterest() {
+        return MixinConfigSniffer.ROOT_JSON;
+    }
     
     @Override
     public void doEdit(TransformerContext context, FileAccess output) throws Exception {
-        Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+        doEdit(context, output, getAssetInterest().collect(output));
+    }
+    
+    @Override
+    public void doEdit(TransformerContext context, FileAccess output, Map<String, byte[]> assets) throws Exception {
         List<String> mixinConfigs = new ArrayList<>();
         String refmap = System.getProperty(BuiltinProperties.REFMAP_NAME);
-        output.handle((path, bytes) -> {
-            String trimmedPath = Transform.trimSlashes(path);
-            if (trimmedPath.endsWith(".json") && !trimmedPath.contains("/") && !trimmedPath.contains("\\")) {
-                Logger.debug("Checking whether " + path + " is a mixin config.");
-                try (InputStreamReader reader = new InputStreamReader(new ByteArrayInputStream(bytes))) {
-                    JsonObject json = gson.fromJson(reader, JsonObject.class);
-                    if (json != null) {
-                        boolean hasMixins = json.has("mixins") && json.get("mixins").isJsonArray();
-                        boolean hasClient = json.has("client") && json.get("client").isJsonArray();
-                        boolean hasServer = json.has("server") && json.get("server").isJsonArray();
-                        if (json.has("package") && (hasMixins || hasClient || hasServer)) {
-                            mixinConfigs.add(trimmedPath);
-                        }
-                    }
-                } catch (Exception ignored) {
-                }
+        assets.forEach((path, bytes) -> {
+            Logger.debug(() -> "Checking whether " + path + " is a mixin config.");
+            if (MixinConfigSniffer.sniff(output, bytes).isMixinConfig()) {
+                mixinConfigs.add(Transform.trimSlashes(path));
             }
         });
         if (!mixinConfigs.isEmpty()) {
             Logger.debug("Found mixin config(s): " + String.join(",", mixinConfigs));
         }
         if (context.canModifyAssets()) {
-            output.modifyFile("META-INF/MANIFEST.MF", bytes -> {
+            output.modifyFile(MANIFEST, bytes -> {
                 try {
                     Logger.debug("Injecting MixinConfigs into /META-INF/MANIFEST.MF");
                     Manifest manifest = new Manifest(new ByteArrayInputStream(bytes));
                     manifest.getMainAttributes().putValue("MixinConfigs", String.join(",", mixinConfigs));
+                    if (ReproducibleOutput.isEnabled()) {
+                        return ReproducibleOutput.writeManifest(manifest);
+                    }
                     ByteArrayOutputStream stream = new ByteArrayOutputStream();
                     manifest.write(stream);
                     return stream.toByteArray();
@@ -103,67 +95,37 @@ public class FixForgeMixin implements AssetEditTransformer {
             Logger.debug("Remapping refmap from intermediary to srg: " + refmap);
             output.modifyFile(refmap, bytes -> {
                 try {
-                    readSrg();
+                    IntermediarySrgIndex srg = IntermediarySrgIndex.fromProperties();
                     
                     SimpleReferenceRemapper referenceRemapper = new SimpleReferenceRemapper(new SimpleReferenceRemapper.Remapper() {
                         @Override
                         @Nullable
                         public String mapClass(String value) {
-                            Mapped classDef = srgMap.get(value);
-                            return classDef == null ? null : classDef.getName("srg");
+                            return srg.mapClass(value);
                         }
                         
                         @Override
                         @Nullable
                         public String mapMethod(@Nullable String className, String methodName, String methodDescriptor) {
-                            String methodId = "M " + methodName + " " + methodDescriptor;
-                            Mapped mapped;
-                            if (className != null) {
-                                mapped = srgMap.get(className + " " + methodId);
-                                if (mapped != null) return mapped.getName("srg");
-                            }
-                            mapped = srgMap.get(methodId);
-                            return mapped == null ? null : mapped.getName("srg");
+                            return srg.mapMethod(className, methodName, methodDescriptor);
                         }
                         
                         @Override
                         @Nullable
                         public String mapField(@Nullable String className, String fieldName, String fieldDescriptor) {
-                            String fieldId = "F " + fieldName + " " + fieldDescriptor;
-                            Mapped mapped;
-                            if (className != null) {
-                                mapped = srgMap.get(className + " " + fieldId);
-                                if (mapped != null) return mapped.getName("srg");
-                            }
-                            mapped = srgMap.get(fieldId);
-                            return mapped == null ? null : mapped.getName("srg");
+                            return srg.mapField(className, fieldName, fieldDescriptor);
                         }
-                    }) {
-                        @Override
-                        public String remapSimple(String key, String value) {
-                            String remapped = super.remapSimple(key, value);
+                    });
+                    RefmapStreamRemapper remapper = new RefmapStreamRemapper((key, value) -> {
+                        String remapped = referenceRemapper.remapSimple(key, value);
+                        if (Logger.isVerbose()) {
                             Logger.debug("Remapped refmap value " + value + " -> " + remapped);
-                            return remapped;
-                        }
-                    };
-                    
-                    return RefmapRemapper.remap(new Remapper() {
-                        @Override
-                        @Nullable
-                        public MappingsRemapper remapMappings() {
-                            return className -> referenceRemapper;
                         }
-                        
-                        @Override
-                        @Nullable
-                        public Map.Entry<String, @Nullable MappingsRemapper> remapMappingsData(String data) {
-                            if (Objects.equals(data, "named:intermediary")) {
-                                return new AbstractMap.SimpleEntry<>("searge", remapMappings());
-                            }
-                            
-                            return null;
-                        }
-                    }, new String(bytes, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+                        return remapped;
+                    }, "named:intermediary", "searge");
+                    byte[] remapped = remapper.remap(bytes);
+                    Logger.debug("Remapped %d refmap references (%d distinct) in %s", remapper.getReferences(), remapper.getResolvedReferences(), refmap);
+                    return remapped;
                 } catch (Exception e) {
                     throw new RuntimeException(e);
                 }
@@ -171,38 +133,14 @@ public class FixForgeMixin implements AssetEditTransformer {
         }
     }
     
-    private void readSrg() throws IOException {
-        if (srg == null) {
-            Path srgMappingsPath = Paths.get(System.getProperty(BuiltinProperties.MAPPINGS_WITH_SRG));
-            try (BufferedReader reader = Files.newBufferedReader(srgMappingsPath)) {
-                srg = TinyMappingFactory.loadWithDetection(reader);
-            }
-        }
-        
-        if (srgMap == null) {
-            srgMap = new HashMap<>();
-            for (ClassDef srgClass : srg.getClasses()) {
-                String intermediary = srgClass.getName("intermediary");
-                srgMap.put(intermediary, srgClass);
-                
-                for (MethodDef method : srgClass.getMethods()) {
-                    String methodId = "M " + method.getName("intermediary") + " " + method.getDescriptor("intermediary");
-                    srgMap.put(intermediary + " " + methodId, method);
-                    
-                    if (!srgMap.containsKey(methodId)) {
-                        srgMap.put(methodId, method);
-                    }
-                }
-                
-                for (FieldDef field : srgClass.getFields()) {
-                    String fieldId = "F " + field.getName("intermediary") + " " + field.getDescriptor("intermediary");
-                    srgMap.put(intermediary + " " + fieldId, field);
-                    
-                    if (!srgMap.containsKey(fieldId)) {
-                        srgMap.put(fieldId, field);
-                    }
-                }
-            }
-        }
+    @Override
+    public TransformerAccess getReads() {
+        return TransformerAccess.assets(getAssetInterest().or(AssetInterest.exact(MANIFEST, System.getProperty(BuiltinProperties.REFMAP_NAME))));
+    }
+    
+    @Override
+    public TransformerAccess getWrites() {
+        return TransformerAccess.assets(AssetInterest.exact(MANIFEST, System.getProperty(BuiltinProperties.REFMAP_NAME)))
+                .and(TransformerAccess.arguments());
     }
 }
\ No newline at end of file
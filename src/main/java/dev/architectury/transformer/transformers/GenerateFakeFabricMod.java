@@ -24,6 +24,8 @@
 package dev.architectury.transformer.transformers;
 
 import dev.architectury.transformer.input.FileAccess;
+import dev.architectury.transformer.transformers.base.AssetInterest;
+import dev.architectury.transformer.transformers.base.TransformerAccess;
 import dev.architectury.transformer.transformers.base.edit.TransformerContext;
 
 /**
@@ -32,7 +34,7 @@ import dev.architectury.transformer.transformers.base.edit.TransformerContext;
 public class GenerateFakeFabricMod extends AbstractFakeMod {
     @Override
     public void doEdit(TransformerContext context, FileAccess output) throws Exception {
-        String fakeModId = generateModId();
+        String fakeModId = generateModId(output);
         output.addFile("fabric.mod.json",
                 "{\n" +
                 "  \"schemaVersion\": 1,\n" +
@@ -44,4 +46,9 @@ public class GenerateFakeFabricMod extends AbstractFakeMod {
                 "  }\n" +
                 "}\n");
     }
+    
+    @Override
+    public TransformerAccess getWrites() {
+        return TransformerAccess.assets(AssetInterest.exact("fabric.mod.json"));
+    }
 }
\ No newline at end of file
@@ -24,6 +24,8 @@
 package dev.architectury.transformer.transformers;
 
 import dev.architectury.transformer.input.FileAccess;
+import dev.architectury.transformer.transformers.base.AssetInterest;
+import dev.architectury.transformer.transformers.base.TransformerAccess;
 import dev.architectury.transformer.transformers.base.edit.TransformerContext;
 import org.objectweb.asm.AnnotationVisitor;
 import org.objectweb.asm.ClassWriter;
@@ -36,7 +38,7 @@ import org.objectweb.asm.Opcodes;
 public class GenerateFakeNeoForgeMod extends AbstractFakeMod {
     @Override
     public void doEdit(TransformerContext context, FileAccess output) throws Exception {
-        String fakeModId = generateModId();
+        String fakeModId = generateModId(output);
         output.addFile("META-INF/mods.toml",
                 "modLoader = \"javafml\"\n" +
                 "loaderVersion = \"[1,)\"\n" +
@@ -71,4 +73,9 @@ public class GenerateFakeNeoForgeMod extends AbstractFakeMod {
         writer.visitEnd();
         return writer.toByteArray();
     }
+    
+    @Override
+    public TransformerAccess getWrites() {
+        return TransformerAccess.assets(AssetInterest.exact("META-INF/mods.toml", "META-INF/neoforge.mods.toml", "pack.mcmeta")).and(TransformerAccess.classes());
+    }
 }
\ No newline at end of file
@@ -24,6 +24,8 @@
 package dev.architectury.transformer.transformers;
 
 import dev.architectury.transformer.input.FileAccess;
+import dev.architectury.transformer.transformers.base.AssetInterest;
+import dev.architectury.transformer.transformers.base.TransformerAccess;
 import dev.architectury.transformer.transformers.base.edit.TransformerContext;
 
 /**
@@ -32,7 +34,7 @@ import dev.architectury.transformer.transformers.base.edit.TransformerContext;
 public class GenerateFakeQuiltMod extends AbstractFakeMod {
     @Override
     public void doEdit(TransformerContext context, FileAccess output) throws Exception {
-        String fakeModId = generateModId();
+        String fakeModId = generateModId(output);
         output.addFile("quilt.mod.json",
                 "{\n" +
                 "  \"schema_version\": 1,\n" +
@@ -47,4 +49,9 @@ public class GenerateFakeQuiltMod extends AbstractFakeMod {
                 "  }\n" +
                 "}\n");
     }
+    
+    @Override
+    public TransformerAccess getWrites() {
+        return TransformerAccess.assets(AssetInterest.exact("quilt.mod.json"));
+    }
 }
\ No newline at end of file
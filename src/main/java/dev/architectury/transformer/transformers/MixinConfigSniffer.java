@@ -0,0 +1,137 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer.transformers;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import dev.architectury.transformer.Transform;
+import dev.architectury.transformer.input.FileView;
+import dev.architectury.transformer.transformers.base.AssetInterest;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Detects mixin configs by streaming over their top level keys, the results are cached per file content
+ * for as long as the {@link FileView} being transformed is alive.
+ */
+public final class MixinConfigSniffer {
+    public static final AssetInterest ROOT_JSON = AssetInterest.glob("*.json");
+    private static final Map<FileView, Map<ContentKey, MixinConfigSniffer>> CACHE = Collections.synchronizedMap(new WeakHashMap<>());
+    private boolean hasPackage;
+    private boolean hasMixins;
+    private boolean hasClient;
+    private boolean hasServer;
+    private boolean hasRefmap;
+    
+    private MixinConfigSniffer() {}
+    
+    public static boolean isRootJson(String path) {
+        String trimmedPath = Transform.trimSlashes(path);
+        return trimmedPath.endsWith(".json") && !trimmedPath.contains("/") && !trimmedPath.contains("\\");
+    }
+    
+    public static MixinConfigSniffer sniff(FileView view, byte[] bytes) {
+        Map<ContentKey, MixinConfigSniffer> cache = CACHE.computeIfAbsent(view, $ -> Collections.synchronizedMap(new HashMap<>()));
+        return cache.computeIfAbsent(new ContentKey(bytes), key -> sniff(key.bytes));
+    }
+    
+    private static MixinConfigSniffer sniff(byte[] bytes) {
+        MixinConfigSniffer sniffer = new MixinConfigSniffer();
+        try (JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8))) {
+            reader.setLenient(true);
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) return sniffer;
+            reader.beginObject();
+            while (reader.hasNext() && !sniffer.isComplete()) {
+                String name = reader.nextName();
+                switch (name) {
+                    case "package":
+                        sniffer.hasPackage = true;
+                        break;
+                    case "refmap":
+                        sniffer.hasRefmap = true;
+                        break;
+                    case "mixins":
+                        sniffer.hasMixins = reader.peek() == JsonToken.BEGIN_ARRAY;
+                        break;
+                    case "client":
+                        sniffer.hasClient = reader.peek() == JsonToken.BEGIN_ARRAY;
+                        break;
+                    case "server":
+                        sniffer.hasServer = reader.peek() == JsonToken.BEGIN_ARRAY;
+                        break;
+                }
+                reader.skipValue();
+            }
+        } catch (Exception ignored) {
+            // Not a valid json, and therefore not a mixin config
+            return new MixinConfigSniffer();
+        }
+        return sniffer;
+    }
+    
+    /**
+     * Nothing else in the config can change the result.
+     */
+    private boolean isComplete() {
+        return hasPackage && hasRefmap && (hasMixins || hasClient || hasServer);
+    }
+    
+    public boolean isMixinConfig() {
+        return hasPackage && (hasMixins || hasClient || hasServer);
+    }
+    
+    public boolean hasRefmap() {
+        return hasRefmap;
+    }
+    
+    private static class ContentKey {
+        private final byte[] bytes;
+        private final int hashCode;
+        
+        private ContentKey(byte[] bytes) {
+            this.bytes = bytes;
+            this.hashCode = Arrays.hashCode(bytes);
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ContentKey)) return false;
+            ContentKey that = (ContentKey) o;
+            return hashCode == that.hashCode && Arrays.equals(bytes, that.bytes);
+        }
+        
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
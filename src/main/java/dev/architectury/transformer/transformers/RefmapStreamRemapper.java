@@ -0,0 +1,198 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer.transformers;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BinaryOperator;
+
+/**
+ * Remaps mixin refmaps by streaming them from a {@link JsonReader} into a {@link JsonWriter}, memoizing every
+ * remapped reference so repeated targets are only resolved once.
+ */
+public final class RefmapStreamRemapper {
+    private final BinaryOperator<String> referenceRemapper;
+    private final String fromData;
+    private final String toData;
+    private final Map<String, String> memo = new HashMap<>();
+    private int references;
+    
+    /**
+     * @param referenceRemapper remaps a reference, given its key for context only, as results are memoized by reference
+     */
+    public RefmapStreamRemapper(BinaryOperator<String> referenceRemapper, String fromData, String toData) {
+        this.referenceRemapper = referenceRemapper;
+        this.fromData = fromData;
+        this.toData = toData;
+    }
+    
+    public byte[] remap(byte[] bytes) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream(bytes.length + (bytes.length >> 3));
+        try (JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8))) {
+            reader.setLenient(true);
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) return bytes;
+            try (JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8)))) {
+                writer.setIndent("  ");
+                reader.beginObject();
+                writer.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    writer.name(name);
+                    if (name.equals("mappings") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                        remapMappings(reader, writer);
+                    } else if (name.equals("data") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                        remapData(reader, writer);
+                    } else {
+                        copy(reader, writer);
+                    }
+                }
+                reader.endObject();
+                writer.endObject();
+            }
+        }
+        return stream.toByteArray();
+    }
+    
+    /**
+     * Returns the number of references visited, including the ones served from the memo.
+     */
+    public int getReferences() {
+        return references;
+    }
+    
+    /**
+     * Returns the number of distinct references that had to be resolved.
+     */
+    public int getResolvedReferences() {
+        return memo.size();
+    }
+    
+    private void remapData(JsonReader reader, JsonWriter writer) throws IOException {
+        reader.beginObject();
+        writer.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (Objects.equals(name, fromData) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                writer.name(toData);
+                remapMappings(reader, writer);
+            } else {
+                writer.name(name);
+                copy(reader, writer);
+            }
+        }
+        reader.endObject();
+        writer.endObject();
+    }
+    
+    private void remapMappings(JsonReader reader, JsonWriter writer) throws IOException {
+        reader.beginObject();
+        writer.beginObject();
+        while (reader.hasNext()) {
+            writer.name(reader.nextName());
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                copy(reader, writer);
+                continue;
+            }
+            reader.beginObject();
+            writer.beginObject();
+            while (reader.hasNext()) {
+                String key = reader.nextName();
+                writer.name(key);
+                if (reader.peek() == JsonToken.STRING) {
+                    writer.value(remapReference(key, reader.nextString()));
+                } else {
+                    copy(reader, writer);
+                }
+            }
+            reader.endObject();
+            writer.endObject();
+        }
+        reader.endObject();
+        writer.endObject();
+    }
+    
+    private String remapReference(String key, String reference) {
+        references++;
+        String remapped = memo.get(reference);
+        if (remapped == null) {
+            remapped = remap(key, reference);
+            memo.put(reference, remapped);
+        } else {
+            assert remapped.equals(remap(key, reference)) : "Refmap reference " + reference + " remapped differently for key " + key;
+        }
+        return remapped;
+    }
+    
+    private String remap(String key, String reference) {
+        String remapped = referenceRemapper.apply(key, reference);
+        return remapped == null ? reference : remapped;
+    }
+    
+    private static void copy(JsonReader reader, JsonWriter writer) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_ARRAY:
+                reader.beginArray();
+                writer.beginArray();
+                while (reader.hasNext()) {
+                    copy(reader, writer);
+                }
+                reader.endArray();
+                writer.endArray();
+                break;
+            case BEGIN_OBJECT:
+                reader.beginObject();
+                writer.beginObject();
+                while (reader.hasNext()) {
+                    writer.name(reader.nextName());
+                    copy(reader, writer);
+                }
+                reader.endObject();
+                writer.endObject();
+                break;
+            case STRING:
+                writer.value(reader.nextString());
+                break;
+            case NUMBER:
+                writer.jsonValue(reader.nextString());
+                break;
+            case BOOLEAN:
+                writer.value(reader.nextBoolean());
+                break;
+            case NULL:
+                reader.nextNull();
+                writer.nullValue();
+                break;
+            default:
+                reader.skipValue();
+                break;
+        }
+    }
+}
@@ -25,18 +25,17 @@ package dev.architectury.transformer.transformers;
 
 import com.google.common.base.MoreObjects;
 import com.google.gson.JsonObject;
-import dev.architectury.transformer.transformers.base.ClassEditTransformer;
-import org.objectweb.asm.ClassVisitor;
-import org.objectweb.asm.commons.ClassRemapper;
+import dev.architectury.transformer.transformers.base.ClassRenameTransformer;
+import dev.architectury.transformer.transformers.base.TransformerAccess;
+import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.commons.Remapper;
-import org.objectweb.asm.tree.ClassNode;
 
 import java.io.File;
 
 /**
  * Remap architectury injectables calls to the injected classes.
  */
-public class RemapInjectables implements ClassEditTransformer {
+public class RemapInjectables implements ClassRenameTransformer {
     public static final String EXPECT_PLATFORM_LEGACY = "Lme/shedaniel/architectury/ExpectPlatform;";
     public static final String EXPECT_PLATFORM_LEGACY2 = "Lme/shedaniel/architectury/annotations/ExpectPlatform;";
     public static final String EXPECT_PLATFORM = "Ldev/architectury/injectables/annotations/ExpectPlatform;";
@@ -53,11 +52,11 @@ public class RemapInjectables implements ClassEditTransformer {
     }
     
     @Override
-    public ClassNode doEdit(String name, ClassNode node) {
-        if (!isInjectInjectables()) return node; // no need to edit the class
+    @Nullable
+    public Remapper getClassRenamer() {
+        if (!isInjectInjectables()) return null; // no need to edit the class
         String newName = MoreObjects.firstNonNull(uniqueIdentifier, getUniqueIdentifier()) + "/PlatformMethods";
-        ClassNode newNode = new ClassNode();
-        Remapper remapper = new Remapper() {
+        return new Remapper() {
             @Override
             public String map(String internalName) {
                 if (ARCHITECTURY_TARGET.equals(internalName)) {
@@ -67,9 +66,6 @@ public class RemapInjectables implements ClassEditTransformer {
                 return internalName;
             }
         };
-        ClassVisitor cv = new ClassRemapper(newNode, remapper);
-        node.accept(cv);
-        return newNode;
     }
     
     public static String getUniqueIdentifier() {
@@ -83,4 +79,14 @@ public class RemapInjectables implements ClassEditTransformer {
     public static String[] getClasspath() {
         return System.getProperty(BuiltinProperties.COMPILE_CLASSPATH, "true").split(File.pathSeparator);
     }
+    
+    @Override
+    public TransformerAccess getReads() {
+        return TransformerAccess.classes();
+    }
+    
+    @Override
+    public TransformerAccess getWrites() {
+        return TransformerAccess.classes();
+    }
 }
\ No newline at end of file
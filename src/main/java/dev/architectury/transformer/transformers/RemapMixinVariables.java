@@ -24,8 +24,8 @@
 package dev.architectury.transformer.transformers;
 
 import dev.architectury.tinyremapper.IMappingProvider;
-import dev.architectury.tinyremapper.TinyUtils;
 import dev.architectury.transformer.transformers.base.TinyRemapperTransformer;
+import dev.architectury.transformer.transformers.mappings.MappingStore;
 import dev.architectury.transformer.util.Logger;
 
 import java.io.File;
@@ -46,7 +46,7 @@ public class RemapMixinVariables implements TinyRemapperTransformer {
             if (mixinMapFile.exists()) {
                 Logger.debug("Reading mixin mappings file: " + mixinMapFile.getAbsolutePath());
                 providers.add(mixinMappingCache.computeIfAbsent(path, p ->
-                        TinyUtils.createTinyMappingProvider(mixinMapFile.toPath(), "named", "intermediary"))
+                        MappingStore.provider(mixinMapFile.toPath(), "named", "intermediary"))
                 );
             }
         }
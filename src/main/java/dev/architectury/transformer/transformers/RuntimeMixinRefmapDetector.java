@@ -23,39 +23,40 @@
 
 package dev.architectury.transformer.transformers;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonObject;
 import dev.architectury.transformer.Transform;
 import dev.architectury.transformer.input.FileAccess;
 import dev.architectury.transformer.transformers.base.AssetEditTransformer;
+import dev.architectury.transformer.transformers.base.AssetInterest;
+import dev.architectury.transformer.transformers.base.TransformerAccess;
 import dev.architectury.transformer.transformers.base.edit.TransformerContext;
 import dev.architectury.transformer.util.Logger;
 
-import java.io.ByteArrayInputStream;
-import java.io.InputStreamReader;
+import java.util.Map;
 
 public class RuntimeMixinRefmapDetector implements AssetEditTransformer {
+    @Override
+    public AssetInterest getAssetInterest() {
+        return MixinConfigSniffer.ROOT_JSON;
+    }
+    
     @Override
     public void doEdit(TransformerContext context, FileAccess output) throws Exception {
-        Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
-        output.handle((path, bytes) -> {
-            String trimmedPath = Transform.trimSlashes(path);
-            if (trimmedPath.endsWith(".json") && !trimmedPath.contains("/") && !trimmedPath.contains("\\")) {
-                Logger.debug("Checking whether " + path + " is a mixin config.");
-                try (InputStreamReader reader = new InputStreamReader(new ByteArrayInputStream(bytes))) {
-                    JsonObject json = gson.fromJson(reader, JsonObject.class);
-                    if (json != null) {
-                        boolean hasMixins = json.has("mixins") && json.get("mixins").isJsonArray();
-                        boolean hasClient = json.has("client") && json.get("client").isJsonArray();
-                        boolean hasServer = json.has("server") && json.get("server").isJsonArray();
-                        if (json.has("package") && json.has("refmap") && (hasMixins || hasClient || hasServer)) {
-                            Logger.error("Mixin Config [%s] contains 'refmap', please remove it so it works in development environment!", trimmedPath);
-                        }
-                    }
-                } catch (Exception ignored) {
-                }
+        doEdit(context, output, getAssetInterest().collect(output));
+    }
+    
+    @Override
+    public void doEdit(TransformerContext context, FileAccess output, Map<String, byte[]> assets) throws Exception {
+        assets.forEach((path, bytes) -> {
+            Logger.debug(() -> "Checking whether " + path + " is a mixin config.");
+            MixinConfigSniffer sniffer = MixinConfigSniffer.sniff(output, bytes);
+            if (sniffer.isMixinConfig() && sniffer.hasRefmap()) {
+                Logger.error("Mixin Config [%s] contains 'refmap', please remove it so it works in development environment!", Transform.trimSlashes(path));
             }
         });
     }
-}
+    
+    @Override
+    public TransformerAccess getWrites() {
+        return TransformerAccess.none();
+    }
+}
\ No newline at end of file
@@ -27,8 +27,11 @@ import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
 import com.google.gson.JsonObject;
 import dev.architectury.transformer.input.FileAccess;
+import dev.architectury.transformer.transformers.base.AnnotationIndex;
 import dev.architectury.transformer.transformers.base.AssetEditTransformer;
+import dev.architectury.transformer.transformers.base.AssetInterest;
 import dev.architectury.transformer.transformers.base.ClassEditTransformer;
+import dev.architectury.transformer.transformers.base.TransformerAccess;
 import dev.architectury.transformer.transformers.base.edit.TransformerContext;
 import dev.architectury.transformer.util.Logger;
 import org.jetbrains.annotations.Nullable;
@@ -39,7 +42,9 @@ import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.*;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.Objects;
+import java.util.Set;
 
 import static dev.architectury.transformer.transformers.RemapInjectables.getUniqueIdentifier;
 
@@ -55,6 +60,11 @@ public class TransformExpectPlatform implements AssetEditTransformer, ClassEditT
                 json.getAsJsonPrimitive(BuiltinProperties.UNIQUE_IDENTIFIER).getAsString() : null;
     }
     
+    @Override
+    public AssetInterest getAssetInterest() {
+        return AssetInterest.none();
+    }
+    
     @Override
     public void doEdit(TransformerContext context, FileAccess output) throws Exception {
         if (!RemapInjectables.isInjectInjectables()) return;
@@ -89,7 +99,12 @@ public class TransformExpectPlatform implements AssetEditTransformer, ClassEditT
     @Override
     public ClassNode doEdit(String name, ClassNode node) {
         if (!RemapInjectables.isInjectInjectables()) return node;
-        for (MethodNode method : node.methods) {
+        AnnotationIndex annotations = AnnotationIndex.of(node);
+        if (annotations.isEmpty()) return node;
+        Set<MethodNode> candidates = new LinkedHashSet<>(annotations.getMethods(RemapInjectables.EXPECT_PLATFORM_LEGACY, true));
+        candidates.addAll(annotations.getMethods(RemapInjectables.EXPECT_PLATFORM, false));
+        candidates.addAll(annotations.getMethods(RemapInjectables.EXPECT_PLATFORM_LEGACY2, false));
+        for (MethodNode method : candidates) {
             String platformMethodsClass = null;
             
             if (method.visibleAnnotations != null && method.visibleAnnotations.stream().anyMatch(it -> Objects.equals(it.desc, RemapInjectables.EXPECT_PLATFORM_LEGACY))) {
@@ -121,6 +136,7 @@ public class TransformExpectPlatform implements AssetEditTransformer, ClassEditT
                     // Add @ExpectPlatform.Transformed as a marker annotation
                     if (method.invisibleAnnotations == null) method.invisibleAnnotations = new ArrayList<>();
                     method.invisibleAnnotations.add(new AnnotationNode(RemapInjectables.EXPECT_PLATFORM_TRANSFORMED));
+                    annotations.addMethodAnnotation(method, RemapInjectables.EXPECT_PLATFORM_TRANSFORMED, false);
                 }
             }
         }
@@ -144,4 +160,14 @@ public class TransformExpectPlatform implements AssetEditTransformer, ClassEditT
         return lookupType.substring(0, lookupType.lastIndexOf('/')) + "/" + platform + "/" +
                lookupType.substring(lookupType.lastIndexOf('/') + 1);
     }
+    
+    @Override
+    public boolean maintainsAnnotationIndex() {
+        return true;
+    }
+    
+    @Override
+    public TransformerAccess getWrites() {
+        return TransformerAccess.classes();
+    }
 }
\ No newline at end of file
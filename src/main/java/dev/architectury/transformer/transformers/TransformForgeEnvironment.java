@@ -23,24 +23,23 @@
 
 package dev.architectury.transformer.transformers;
 
+import com.google.common.base.MoreObjects;
 import dev.architectury.tinyremapper.IMappingProvider;
-import dev.architectury.tinyremapper.TinyUtils;
 import dev.architectury.transformer.transformers.base.TinyRemapperTransformer;
+import dev.architectury.transformer.transformers.mappings.MappingStore;
+import dev.architectury.transformer.transformers.mappings.IntermediarySrgIndex;
 import dev.architectury.transformer.util.Logger;
-import net.fabricmc.mapping.tree.TinyMappingFactory;
-import net.fabricmc.mapping.tree.TinyTree;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class TransformForgeEnvironment implements TinyRemapperTransformer {
-    private TinyTree srg;
     private Map<String, IMappingProvider> mixinMappingCache = new HashMap<>();
     
     @Override
@@ -67,53 +66,31 @@ public class TransformForgeEnvironment implements TinyRemapperTransformer {
     private List<IMappingProvider> mapMixin() throws IOException {
         List<IMappingProvider> providers = new ArrayList<>();
         
-        if (srg == null) {
-            Path srgMappingsPath = Paths.get(System.getProperty(BuiltinProperties.MAPPINGS_WITH_SRG));
-            try (BufferedReader reader = Files.newBufferedReader(srgMappingsPath)) {
-                srg = TinyMappingFactory.loadWithDetection(reader);
-            }
-        }
+        IntermediarySrgIndex srg = IntermediarySrgIndex.fromProperties();
         
         for (String path : System.getProperty(BuiltinProperties.MIXIN_MAPPINGS).split(File.pathSeparator)) {
             File mixinMapFile = Paths.get(path).toFile();
             if (mixinMapFile.exists()) {
                 Logger.debug("Reading mixin mappings file: " + mixinMapFile.getAbsolutePath());
                 providers.add(mixinMappingCache.computeIfAbsent(path, p -> sink -> {
-                    TinyUtils.createTinyMappingProvider(mixinMapFile.toPath(), "named", "intermediary").load(new IMappingProvider.MappingAcceptor() {
+                    MappingStore.provider(mixinMapFile.toPath(), "named", "intermediary").load(new IMappingProvider.MappingAcceptor() {
                         @Override
                         public void acceptClass(String srcName, String dstName) {
-                            String srgName = srg.getClasses()
-                                    .stream()
-                                    .filter(it -> Objects.equals(it.getName("intermediary"), dstName))
-                                    .findFirst()
-                                    .map(it -> it.getName("srg"))
-                                    .orElse(dstName);
+                            String srgName = MoreObjects.firstNonNull(srg.mapClass(dstName), dstName);
                             sink.acceptClass(srcName, srgName);
                             Logger.debug("Remap mixin class %s -> %s", srcName, srgName);
                         }
                         
                         @Override
                         public void acceptMethod(IMappingProvider.Member method, String dstName) {
-                            String srgName = srg.getClasses()
-                                    .stream()
-                                    .flatMap(it -> it.getMethods().stream())
-                                    .filter(it -> Objects.equals(it.getName("intermediary"), dstName))
-                                    .findFirst()
-                                    .map(it -> it.getName("srg"))
-                                    .orElse(dstName);
+                            String srgName = MoreObjects.firstNonNull(srg.mapMethodByName(dstName), dstName);
                             sink.acceptMethod(method, srgName);
                             Logger.debug("Remap mixin method %s#%s%s -> %s", method.owner, method.name, method.desc, srgName);
                         }
                         
                         @Override
                         public void acceptField(IMappingProvider.Member field, String dstName) {
-                            String srgName = srg.getClasses()
-                                    .stream()
-                                    .flatMap(it -> it.getFields().stream())
-                                    .filter(it -> Objects.equals(it.getName("intermediary"), dstName))
-                                    .findFirst()
-                                    .map(it -> it.getName("srg"))
-                                    .orElse(dstName);
+                            String srgName = MoreObjects.firstNonNull(srg.mapFieldByName(dstName), dstName);
                             sink.acceptField(field, srgName);
                             Logger.debug("Remap mixin field %s#%s:%s -> %s", field.owner, field.name, field.desc, srgName);
                         }
@@ -23,15 +23,14 @@
 
 package dev.architectury.transformer.transformers;
 
+import dev.architectury.transformer.transformers.base.AnnotationIndex;
 import dev.architectury.transformer.transformers.base.ClassEditTransformer;
+import dev.architectury.transformer.transformers.base.TransformerAccess;
+import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.*;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.*;
 
 /**
  * Handle @ForgeEvent and @ForgeEventCancellable and promote @Environment from being an invisible annotation to being an visible annotation.
@@ -55,11 +54,11 @@ public class TransformForgeLikeAnnotations implements ClassEditTransformer {
     
     @Override
     public ClassNode doEdit(String name, ClassNode node) {
+        AnnotationIndex annotations = AnnotationIndex.of(node);
+        if (annotations.isEmpty()) return node;
         if ((node.access & Opcodes.ACC_INTERFACE) == 0) {
-            if (node.visibleAnnotations != null && node.visibleAnnotations.stream().anyMatch(
-                    annotation -> Objects.equals(annotation.desc, FORGE_EVENT) || Objects.equals(annotation.desc, FORGE_EVENT_CANCELLABLE)
-                            || Objects.equals(annotation.desc, FORGE_EVENT_LEGACY) || Objects.equals(annotation.desc, FORGE_EVENT_CANCELLABLE_LEGACY)
-            )) {
+            if (node.visibleAnnotations != null && (annotations.isClassAnnotated(FORGE_EVENT, true) || annotations.isClassAnnotated(FORGE_EVENT_CANCELLABLE, true)
+                    || annotations.isClassAnnotated(FORGE_EVENT_LEGACY, true) || annotations.isClassAnnotated(FORGE_EVENT_CANCELLABLE_LEGACY, true))) {
                 node.superName = "net/minecraftforge/eventbus/api/Event";
                 for (MethodNode method : node.methods) {
                     if (Objects.equals(method.name, "<init>")) {
@@ -84,56 +83,67 @@ public class TransformForgeLikeAnnotations implements ClassEditTransformer {
                         || node.visibleAnnotations.stream().anyMatch(annotation -> Objects.equals(annotation.desc, FORGE_EVENT_CANCELLABLE))) &&
                         node.visibleAnnotations.stream().noneMatch(annotation -> Objects.equals(annotation.desc, CANCELABLE))) {
                     node.visibleAnnotations.add(new AnnotationNode(CANCELABLE));
+                    annotations.addClassAnnotation(CANCELABLE, true);
                 }
             }
         }
-        if (node.visibleAnnotations == null) {
-            node.visibleAnnotations = new ArrayList<>();
-        }
-        {
-            Collection<AnnotationNode> invisibleEnvironments;
-            if (node.invisibleAnnotations != null) {
-                invisibleEnvironments = node.invisibleAnnotations.stream()
-                        .filter(annotation -> Objects.equals(annotation.desc, "L" + ENVIRONMENT + ";") || Objects.equals(annotation.desc, "L" + onlyIn + ";"))
-                        .collect(Collectors.toList());
-                node.invisibleAnnotations.removeAll(invisibleEnvironments);
-            } else {
-                invisibleEnvironments = Collections.emptyList();
+        String environment = "L" + ENVIRONMENT + ";";
+        String onlyInDesc = "L" + this.onlyIn + ";";
+        if (annotations.isClassAnnotated(environment, false) || annotations.isClassAnnotated(onlyInDesc, false)) {
+            node.visibleAnnotations = promoteEnvironments(node.invisibleAnnotations, node.visibleAnnotations, environment, onlyInDesc);
+            for (AnnotationNode annotation : node.visibleAnnotations) {
+                annotations.addClassAnnotation(annotation.desc, true);
             }
-            node.visibleAnnotations.addAll(invisibleEnvironments);
         }
-        for (FieldNode field : node.fields) {
-            if (field.visibleAnnotations == null) {
-                field.visibleAnnotations = new ArrayList<>();
-            }
-            
-            Collection<AnnotationNode> invisibleEnvironments;
-            if (field.invisibleAnnotations != null) {
-                invisibleEnvironments = field.invisibleAnnotations.stream()
-                        .filter(annotation -> Objects.equals(annotation.desc, "L" + ENVIRONMENT + ";") || Objects.equals(annotation.desc, "L" + onlyIn + ";"))
-                        .collect(Collectors.toList());
-                field.invisibleAnnotations.removeAll(invisibleEnvironments);
-            } else {
-                invisibleEnvironments = Collections.emptyList();
+        Set<FieldNode> fields = new LinkedHashSet<>(annotations.getFields(environment, false));
+        fields.addAll(annotations.getFields(onlyInDesc, false));
+        for (FieldNode field : fields) {
+            field.visibleAnnotations = promoteEnvironments(field.invisibleAnnotations, field.visibleAnnotations, environment, onlyInDesc);
+            for (AnnotationNode annotation : field.visibleAnnotations) {
+                annotations.addFieldAnnotation(field, annotation.desc, true);
             }
-            field.visibleAnnotations.addAll(invisibleEnvironments);
         }
-        for (MethodNode method : node.methods) {
-            if (method.visibleAnnotations == null) {
-                method.visibleAnnotations = new ArrayList<>();
-            }
-            
-            Collection<AnnotationNode> invisibleEnvironments;
-            if (method.invisibleAnnotations != null) {
-                invisibleEnvironments = method.invisibleAnnotations.stream()
-                        .filter(annotation -> Objects.equals(annotation.desc, "L" + ENVIRONMENT + ";") || Objects.equals(annotation.desc, "L" + onlyIn + ";"))
-                        .collect(Collectors.toList());
-                method.invisibleAnnotations.removeAll(invisibleEnvironments);
-            } else {
-                invisibleEnvironments = Collections.emptyList();
+        Set<MethodNode> methods = new LinkedHashSet<>(annotations.getMethods(environment, false));
+        methods.addAll(annotations.getMethods(onlyInDesc, false));
+        for (MethodNode method : methods) {
+            method.visibleAnnotations = promoteEnvironments(method.invisibleAnnotations, method.visibleAnnotations, environment, onlyInDesc);
+            for (AnnotationNode annotation : method.visibleAnnotations) {
+                annotations.addMethodAnnotation(method, annotation.desc, true);
             }
-            method.visibleAnnotations.addAll(invisibleEnvironments);
         }
         return node;
     }
+    
+    private static List<AnnotationNode> promoteEnvironments(@Nullable List<AnnotationNode> invisibleAnnotations, @Nullable List<AnnotationNode> visibleAnnotations,
+            String environment, String onlyIn) {
+        if (visibleAnnotations == null) {
+            visibleAnnotations = new ArrayList<>();
+        }
+        if (invisibleAnnotations != null) {
+            Iterator<AnnotationNode> iterator = invisibleAnnotations.iterator();
+            while (iterator.hasNext()) {
+                AnnotationNode annotation = iterator.next();
+                if (Objects.equals(annotation.desc, environment) || Objects.equals(annotation.desc, onlyIn)) {
+                    iterator.remove();
+                    visibleAnnotations.add(annotation);
+                }
+            }
+        }
+        return visibleAnnotations;
+    }
+    
+    @Override
+    public boolean maintainsAnnotationIndex() {
+        return true;
+    }
+    
+    @Override
+    public TransformerAccess getReads() {
+        return TransformerAccess.classes();
+    }
+    
+    @Override
+    public TransformerAccess getWrites() {
+        return TransformerAccess.classes();
+    }
 }
\ No newline at end of file
@@ -25,15 +25,16 @@ package dev.architectury.transformer.transformers;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import dev.architectury.transformer.transformers.base.ClassEditTransformer;
-import org.objectweb.asm.commons.ClassRemapper;
+import dev.architectury.transformer.transformers.base.ClassRenameTransformer;
+import dev.architectury.transformer.transformers.base.TransformerAccess;
+import dev.architectury.transformer.transformers.mappings.PrefixRemapper;
 import org.objectweb.asm.commons.Remapper;
-import org.objectweb.asm.tree.ClassNode;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
-public class TransformForgeLikeToNeoForge implements ClassEditTransformer {
+public class TransformForgeLikeToNeoForge implements ClassRenameTransformer {
     private static final String FORGE_API = "net/minecraftforge/api/";
     private static final String NEOFORGE_API = "net/neoforged/api/";
     private static final String FORGE_BUS = "net/minecraftforge/eventbus/";
@@ -45,6 +46,7 @@ public class TransformForgeLikeToNeoForge implements ClassEditTransformer {
     private static final String FORGE = "net/minecraftforge/common/MinecraftForge";
     private static final String NEOFORGE = "net/neoforged/neoforge/common/NeoForge";
     private final Map<String, String> extraMappings = new HashMap<>();
+    private volatile PrefixRemapper remapper;
     
     @Override
     public void supplyProperties(JsonObject json) {
@@ -53,32 +55,34 @@ public class TransformForgeLikeToNeoForge implements ClassEditTransformer {
             for (Map.Entry<String, JsonElement> entry : remaps.entrySet()) {
                 extraMappings.put(entry.getKey(), entry.getValue().getAsString());
             }
+            remapper = null;
         }
     }
     
     @Override
-    public ClassNode doEdit(String name, ClassNode node) {
-        ClassNode newNode = new ClassNode();
-        node.accept(new ClassRemapper(newNode, new Remapper() {
-            @Override
-            public String map(String internalName) {
-                if (extraMappings.containsKey(internalName)) {
-                    return extraMappings.get(internalName);
-                } else if (internalName.equals(FORGE)) {
-                    return NEOFORGE;
-                } else if (internalName.startsWith(FORGE_API)) {
-                    return NEOFORGE_API + internalName.substring(FORGE_API.length());
-                } else if (internalName.startsWith(FORGE_BUS)) {
-                    return NEOFORGE_BUS + internalName.substring(FORGE_BUS.length());
-                } else if (internalName.startsWith(FORGE_FML)) {
-                    return NEOFORGE_FML + internalName.substring(FORGE_FML.length());
-                } else if (internalName.startsWith(FORGE_BASE)) {
-                    return NEOFORGE_BASE + internalName.substring(FORGE_BASE.length());
-                }
-                
-                return super.map(internalName);
-            }
-        }));
-        return newNode;
+    public Remapper getClassRenamer() {
+        PrefixRemapper remapper = this.remapper;
+        if (remapper == null) {
+            Map<String, String> exact = new HashMap<>();
+            exact.put(FORGE, NEOFORGE);
+            exact.putAll(extraMappings);
+            Map<String, String> prefixes = new LinkedHashMap<>();
+            prefixes.put(FORGE_API, NEOFORGE_API);
+            prefixes.put(FORGE_BUS, NEOFORGE_BUS);
+            prefixes.put(FORGE_FML, NEOFORGE_FML);
+            prefixes.put(FORGE_BASE, NEOFORGE_BASE);
+            this.remapper = remapper = new PrefixRemapper(exact, prefixes);
+        }
+        return remapper;
+    }
+    
+    @Override
+    public TransformerAccess getReads() {
+        return TransformerAccess.classes();
+    }
+    
+    @Override
+    public TransformerAccess getWrites() {
+        return TransformerAccess.classes();
     }
 }
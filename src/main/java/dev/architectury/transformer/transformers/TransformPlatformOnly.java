@@ -23,16 +23,19 @@
 
 package dev.architectury.transformer.transformers;
 
+import dev.architectury.transformer.transformers.base.AnnotationIndex;
 import dev.architectury.transformer.transformers.base.ClassEditTransformer;
+import dev.architectury.transformer.transformers.base.TransformerAccess;
 import dev.architectury.transformer.util.Logger;
 import org.objectweb.asm.tree.AnnotationNode;
 import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.FieldNode;
 import org.objectweb.asm.tree.MethodNode;
 
-import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public class TransformPlatformOnly implements ClassEditTransformer {
     @Override
@@ -43,27 +46,30 @@ public class TransformPlatformOnly implements ClassEditTransformer {
             return node;
         }
         
-        Iterator<MethodNode> methodsIter = node.methods.iterator();
-        while (methodsIter.hasNext()) {
-            MethodNode method = methodsIter.next();
+        AnnotationIndex annotations = AnnotationIndex.of(node);
+        if (!annotations.contains(RemapInjectables.PLATFORM_ONLY) && !annotations.contains(RemapInjectables.PLATFORM_ONLY_LEGACY)) {
+            return node;
+        }
+        
+        Set<MethodNode> methods = new LinkedHashSet<>(annotations.getMethods(RemapInjectables.PLATFORM_ONLY_LEGACY, false));
+        methods.addAll(annotations.getMethods(RemapInjectables.PLATFORM_ONLY, false));
+        for (MethodNode method : methods) {
             AnnotationNode annotation = Optional.ofNullable(method.invisibleAnnotations)
                     .flatMap(nodes -> nodes.stream().filter(a ->
                             a.desc.equals(RemapInjectables.PLATFORM_ONLY_LEGACY) || a.desc.equals(RemapInjectables.PLATFORM_ONLY)).findAny())
                     .orElse(null);
             if (shouldRemove(annotation, platform)) {
-                methodsIter.remove();
+                node.methods.remove(method);
             }
         }
         
-        Iterator<FieldNode> fieldsIter = node.fields.iterator();
-        while (fieldsIter.hasNext()) {
-            FieldNode field = fieldsIter.next();
+        for (FieldNode field : annotations.getFields(RemapInjectables.PLATFORM_ONLY, false)) {
             AnnotationNode annotation = Optional.ofNullable(field.invisibleAnnotations)
                     .flatMap(nodes -> nodes.stream().filter(a ->
                             a.desc.equals(RemapInjectables.PLATFORM_ONLY)).findAny())
                     .orElse(null);
             if (shouldRemove(annotation, platform)) {
-                fieldsIter.remove();
+                node.fields.remove(field);
             }
         }
         
@@ -86,4 +92,19 @@ public class TransformPlatformOnly implements ClassEditTransformer {
         
         return false;
     }
+    
+    @Override
+    public boolean maintainsAnnotationIndex() {
+        return true;
+    }
+    
+    @Override
+    public TransformerAccess getReads() {
+        return TransformerAccess.classes();
+    }
+    
+    @Override
+    public TransformerAccess getWrites() {
+        return TransformerAccess.classes();
+    }
 }
@@ -0,0 +1,216 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer.transformers.base;
+
+import org.objectweb.asm.*;
+import org.objectweb.asm.tree.AnnotationNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.util.*;
+
+/**
+ * Index of annotation descriptors to the members carrying them, built once while a class is parsed and shared
+ * by every annotation-driven {@link ClassEditTransformer}.
+ * <p>
+ * Transformers may remove annotations after the index is built, the index only lists candidates and callers should
+ * still check the annotation on the returned members. Annotations added by a transformer must be recorded with the
+ * {@code add} methods, otherwise the handler drops the index after the transformer, see
+ * {@link ClassEditTransformer#maintainsAnnotationIndex()}.
+ */
+public final class AnnotationIndex {
+    private static final Map<ClassNode, AnnotationIndex> INDEXES = Collections.synchronizedMap(new WeakHashMap<>());
+    private final Map<String, Entry> entries = new HashMap<>();
+    
+    private AnnotationIndex() {}
+    
+    /**
+     * Returns the index of the node, indexing its annotation lists if it was not created through {@link #indexing(ClassNode)}.
+     */
+    public static AnnotationIndex of(ClassNode node) {
+        AnnotationIndex index = INDEXES.get(node);
+        if (index == null) {
+            index = new AnnotationIndex();
+            index.addClass(node.visibleAnnotations, true);
+            index.addClass(node.invisibleAnnotations, false);
+            for (MethodNode method : node.methods) {
+                index.addMethod(method.visibleAnnotations, method, true);
+                index.addMethod(method.invisibleAnnotations, method, false);
+            }
+            for (FieldNode field : node.fields) {
+                index.addField(field.visibleAnnotations, field, true);
+                index.addField(field.invisibleAnnotations, field, false);
+            }
+            INDEXES.put(node, index);
+        }
+        return index;
+    }
+    
+    /**
+     * Returns a visitor that fills the node and indexes its annotations along the way.
+     */
+    public static ClassVisitor indexing(ClassNode node) {
+        AnnotationIndex index = new AnnotationIndex();
+        INDEXES.put(node, index);
+        return new ClassVisitor(Opcodes.ASM9, node) {
+            @Override
+            public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+                index.entry(descriptor).classAnnotated(visible);
+                return super.visitAnnotation(descriptor, visible);
+            }
+            
+            @Override
+            public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+                FieldVisitor visitor = super.visitField(access, name, descriptor, signature, value);
+                if (!(visitor instanceof FieldNode)) return visitor;
+                FieldNode field = (FieldNode) visitor;
+                return new FieldVisitor(Opcodes.ASM9, field) {
+                    @Override
+                    public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+                        index.entry(descriptor).add(field, visible);
+                        return super.visitAnnotation(descriptor, visible);
+                    }
+                };
+            }
+            
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                MethodVisitor visitor = super.visitMethod(access, name, descriptor, signature, exceptions);
+                if (!(visitor instanceof MethodNode)) return visitor;
+                MethodNode method = (MethodNode) visitor;
+                return new MethodVisitor(Opcodes.ASM9, method) {
+                    @Override
+                    public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+                        index.entry(descriptor).add(method, visible);
+                        return super.visitAnnotation(descriptor, visible);
+                    }
+                };
+            }
+        };
+    }
+    
+    /**
+     * Drops the index of the node, the next {@link #of(ClassNode)} indexes its annotation lists again.
+     */
+    public static void invalidate(ClassNode node) {
+        INDEXES.remove(node);
+    }
+    
+    public void addClassAnnotation(String descriptor, boolean visible) {
+        entry(descriptor).classAnnotated(visible);
+    }
+    
+    public void addMethodAnnotation(MethodNode method, String descriptor, boolean visible) {
+        entry(descriptor).add(method, visible);
+    }
+    
+    public void addFieldAnnotation(FieldNode field, String descriptor, boolean visible) {
+        entry(descriptor).add(field, visible);
+    }
+    
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+    
+    public boolean contains(String descriptor) {
+        return entries.containsKey(descriptor);
+    }
+    
+    public boolean isClassAnnotated(String descriptor, boolean visible) {
+        Entry entry = entries.get(descriptor);
+        return entry != null && (visible ? entry.classVisible : entry.classInvisible);
+    }
+    
+    public List<MethodNode> getMethods(String descriptor, boolean visible) {
+        Entry entry = entries.get(descriptor);
+        if (entry == null) return Collections.emptyList();
+        return visible ? entry.visibleMethods : entry.invisibleMethods;
+    }
+    
+    public List<FieldNode> getFields(String descriptor, boolean visible) {
+        Entry entry = entries.get(descriptor);
+        if (entry == null) return Collections.emptyList();
+        return visible ? entry.visibleFields : entry.invisibleFields;
+    }
+    
+    private Entry entry(String descriptor) {
+        return entries.computeIfAbsent(descriptor, $ -> new Entry());
+    }
+    
+    private void addClass(List<AnnotationNode> annotations, boolean visible) {
+        if (annotations == null) return;
+        for (AnnotationNode annotation : annotations) {
+            entry(annotation.desc).classAnnotated(visible);
+        }
+    }
+    
+    private void addMethod(List<AnnotationNode> annotations, MethodNode method, boolean visible) {
+        if (annotations == null) return;
+        for (AnnotationNode annotation : annotations) {
+            entry(annotation.desc).add(method, visible);
+        }
+    }
+    
+    private void addField(List<AnnotationNode> annotations, FieldNode field, boolean visible) {
+        if (annotations == null) return;
+        for (AnnotationNode annotation : annotations) {
+            entry(annotation.desc).add(field, visible);
+        }
+    }
+    
+    private static class Entry {
+        private boolean classVisible;
+        private boolean classInvisible;
+        private List<MethodNode> visibleMethods = Collections.emptyList();
+        private List<MethodNode> invisibleMethods = Collections.emptyList();
+        private List<FieldNode> visibleFields = Collections.emptyList();
+        private List<FieldNode> invisibleFields = Collections.emptyList();
+        
+        private void classAnnotated(boolean visible) {
+            if (visible) classVisible = true;
+            else classInvisible = true;
+        }
+        
+        private void add(MethodNode method, boolean visible) {
+            if (visible) visibleMethods = append(visibleMethods, method);
+            else invisibleMethods = append(invisibleMethods, method);
+        }
+        
+        private void add(FieldNode field, boolean visible) {
+            if (visible) visibleFields = append(visibleFields, field);
+            else invisibleFields = append(invisibleFields, field);
+        }
+        
+        private static <T> List<T> append(List<T> list, T value) {
+            if (list.isEmpty()) {
+                list = new ArrayList<>(2);
+            } else if (list.get(list.size() - 1) == value) {
+                return list;
+            }
+            list.add(value);
+            return list;
+        }
+    }
+}
@@ -27,6 +27,29 @@ import dev.architectury.transformer.Transformer;
 import dev.architectury.transformer.input.FileAccess;
 import dev.architectury.transformer.transformers.base.edit.TransformerContext;
 
+import java.util.Map;
+
 public interface AssetEditTransformer extends Transformer {
     void doEdit(TransformerContext context, FileAccess output) throws Exception;
+    
+    /**
+     * Returns the assets this transformer reads. Transformers declaring anything but {@link AssetInterest#all()}
+     * are handed their assets through {@link #doEdit(TransformerContext, FileAccess, Map)}, collected from a walk
+     * shared with other transformers whenever possible.
+     */
+    default AssetInterest getAssetInterest() {
+        return AssetInterest.all();
+    }
+    
+    @Override
+    default TransformerAccess getReads() {
+        return TransformerAccess.assets(getAssetInterest());
+    }
+    
+    /**
+     * Edits the output with the assets matching {@link #getAssetInterest()}.
+     */
+    default void doEdit(TransformerContext context, FileAccess output, Map<String, byte[]> assets) throws Exception {
+        doEdit(context, output);
+    }
 }
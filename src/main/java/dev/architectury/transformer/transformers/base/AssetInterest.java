@@ -0,0 +1,183 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer.transformers.base;
+
+import dev.architectury.transformer.Transform;
+import dev.architectury.transformer.input.FileView;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Declares which assets an {@link AssetEditTransformer} reads, so the handler can collect them for every
+ * transformer in a single walk over the output.
+ */
+public final class AssetInterest {
+    private static final AssetInterest ALL = new AssetInterest(path -> true, null, "all");
+    private static final AssetInterest NONE = new AssetInterest(path -> false, Collections.emptySet(), "none");
+    private static final AssetInterest ROOT = new AssetInterest(path -> path.indexOf('/') == -1, null, "root");
+    private final Predicate<String> predicate;
+    @Nullable
+    private final Set<String> exact;
+    private final String description;
+    
+    private AssetInterest(Predicate<String> predicate, @Nullable Set<String> exact, String description) {
+        this.predicate = predicate;
+        this.exact = exact;
+        this.description = description;
+    }
+    
+    /**
+     * Every asset, transformers with this interest walk the output themselves and are not dispatched.
+     */
+    public static AssetInterest all() {
+        return ALL;
+    }
+    
+    public static AssetInterest none() {
+        return NONE;
+    }
+    
+    /**
+     * Files at the root of the output.
+     */
+    public static AssetInterest rootOnly() {
+        return ROOT;
+    }
+    
+    /**
+     * Paths matching the glob, {@code *} and {@code ?} do not match {@code /}, and {@code **} matches anything.
+     */
+    public static AssetInterest glob(String glob) {
+        Pattern pattern = Pattern.compile(toRegex(glob));
+        return new AssetInterest(path -> pattern.matcher(path).matches(), null, "glob " + glob);
+    }
+    
+    public static AssetInterest exact(String... paths) {
+        return exact(Arrays.asList(paths));
+    }
+    
+    public static AssetInterest exact(Collection<String> paths) {
+        Set<String> set = new TreeSet<>();
+        for (String path : paths) {
+            if (path != null) {
+                set.add(normalize(path));
+            }
+        }
+        if (set.isEmpty()) return NONE;
+        return new AssetInterest(set::contains, set, "exact " + set);
+    }
+    
+    public AssetInterest or(AssetInterest other) {
+        if (this == ALL || other == NONE) return this;
+        if (other == ALL || this == NONE) return other;
+        if (exact != null && other.exact != null) {
+            Set<String> union = new TreeSet<>(exact);
+            union.addAll(other.exact);
+            return exact(union);
+        }
+        return new AssetInterest(predicate.or(other.predicate), null, description + " or " + other.description);
+    }
+    
+    /**
+     * Returns whether a path may match both interests, two patterns are always assumed to overlap.
+     */
+    public boolean overlaps(AssetInterest other) {
+        if (isNone() || other.isNone()) return false;
+        if (exact != null && other.exact != null) {
+            return !Collections.disjoint(exact, other.exact);
+        } else if (exact != null) {
+            return exact.stream().anyMatch(other::matches);
+        } else if (other.exact != null) {
+            return other.exact.stream().anyMatch(this::matches);
+        }
+        return true;
+    }
+    
+    public boolean isAll() {
+        return this == ALL;
+    }
+    
+    public boolean isNone() {
+        return this == NONE || (exact != null && exact.isEmpty());
+    }
+    
+    public boolean matches(String path) {
+        return predicate.test(normalize(path));
+    }
+    
+    /**
+     * Reads the matching assets of the view, only the bytes of matching files are read.
+     */
+    public Map<String, byte[]> collect(FileView view) throws IOException {
+        if (isNone()) return Collections.emptyMap();
+        List<String> paths = new ArrayList<>();
+        view.handle(path -> {
+            if (matches(path)) {
+                paths.add(path);
+            }
+        });
+        Map<String, byte[]> assets = new LinkedHashMap<>();
+        for (String path : paths) {
+            byte[] bytes = view.getFile(path);
+            if (bytes != null) {
+                assets.put(path, bytes);
+            }
+        }
+        return assets;
+    }
+    
+    @Override
+    public String toString() {
+        return "AssetInterest[" + description + "]";
+    }
+    
+    private static String normalize(String path) {
+        return Transform.trimLeadingSlash(path.replace('\\', '/'));
+    }
+    
+    private static String toRegex(String glob) {
+        StringBuilder builder = new StringBuilder();
+        String normalized = normalize(glob);
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (c == '*') {
+                if (i + 1 < normalized.length() && normalized.charAt(i + 1) == '*') {
+                    builder.append(".*");
+                    i++;
+                } else {
+                    builder.append("[^/]*");
+                }
+            } else if (c == '?') {
+                builder.append("[^/]");
+            } else {
+                builder.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return builder.toString();
+    }
+}
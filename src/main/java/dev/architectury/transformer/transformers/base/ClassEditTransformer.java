@@ -35,6 +35,14 @@ public interface ClassEditTransformer extends Transformer {
         return doEdit(name, node);
     }
     
+    /**
+     * Returns whether the transformer records the annotations it adds in the {@link AnnotationIndex} of the node,
+     * otherwise the index is built again for the next transformer using it.
+     */
+    default boolean maintainsAnnotationIndex() {
+        return false;
+    }
+    
     interface Options {
         void computeMaxs();
         
@@ -0,0 +1,51 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer.transformers.base;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.commons.Remapper;
+import org.objectweb.asm.tree.ClassNode;
+
+/**
+ * A {@link ClassEditTransformer} that only renames class references, which lets the handler rewrite the constant
+ * pool of the class directly instead of going through a tree.
+ */
+public interface ClassRenameTransformer extends ClassEditTransformer {
+    /**
+     * Returns the remapper renaming classes, or {@code null} if nothing should be renamed.
+     * The remapper must not rename members, packages or modules.
+     */
+    @Nullable
+    Remapper getClassRenamer();
+    
+    @Override
+    default ClassNode doEdit(String name, ClassNode node) {
+        Remapper renamer = getClassRenamer();
+        if (renamer == null) return node;
+        ClassNode newNode = new ClassNode();
+        node.accept(new ClassRemapper(AnnotationIndex.indexing(newNode), renamer));
+        return newNode;
+    }
+}
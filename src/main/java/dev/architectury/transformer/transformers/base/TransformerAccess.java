@@ -0,0 +1,102 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer.transformers.base;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A set of resources a transformer reads or writes, used to find out which transformer steps may run concurrently.
+ */
+public final class TransformerAccess {
+    private static final TransformerAccess NONE = new TransformerAccess(false, false, false, AssetInterest.none());
+    private static final TransformerAccess ALL = new TransformerAccess(true, true, true, AssetInterest.all());
+    private final boolean classes;
+    private final boolean mappings;
+    private final boolean arguments;
+    private final AssetInterest assets;
+    
+    private TransformerAccess(boolean classes, boolean mappings, boolean arguments, AssetInterest assets) {
+        this.classes = classes;
+        this.mappings = mappings;
+        this.arguments = arguments;
+        this.assets = assets;
+    }
+    
+    public static TransformerAccess none() {
+        return NONE;
+    }
+    
+    /**
+     * Everything, the default for transformers not declaring their access.
+     */
+    public static TransformerAccess all() {
+        return ALL;
+    }
+    
+    public static TransformerAccess classes() {
+        return new TransformerAccess(true, false, false, AssetInterest.none());
+    }
+    
+    public static TransformerAccess mappings() {
+        return new TransformerAccess(false, true, false, AssetInterest.none());
+    }
+    
+    public static TransformerAccess arguments() {
+        return new TransformerAccess(false, false, true, AssetInterest.none());
+    }
+    
+    /**
+     * Non-class files matching the interest, {@link AssetInterest#all()} also covers classes.
+     */
+    public static TransformerAccess assets(AssetInterest assets) {
+        if (assets.isAll()) return ALL;
+        return new TransformerAccess(false, false, false, assets);
+    }
+    
+    public TransformerAccess and(TransformerAccess other) {
+        if (this == ALL || other == NONE) return this;
+        if (other == ALL || this == NONE) return other;
+        return new TransformerAccess(classes || other.classes, mappings || other.mappings, arguments || other.arguments, assets.or(other.assets));
+    }
+    
+    public boolean overlaps(TransformerAccess other) {
+        return (classes && other.classes) || (mappings && other.mappings) || (arguments && other.arguments) || assets.overlaps(other.assets);
+    }
+    
+    public boolean isNone() {
+        return !classes && !mappings && !arguments && assets.isNone();
+    }
+    
+    @Override
+    public String toString() {
+        if (this == ALL) return "all";
+        List<String> parts = new ArrayList<>();
+        if (classes) parts.add("classes");
+        if (mappings) parts.add("mappings");
+        if (arguments) parts.add("arguments");
+        if (!assets.isNone()) parts.add(assets.toString());
+        return parts.isEmpty() ? "none" : String.join(", ", parts);
+    }
+}
@@ -30,6 +30,14 @@ public interface ReadClasspathProvider {
         return new ReadClasspathProviderImpl(provider.logging());
     }
     
+    /**
+     * Returns a provider that only provides the class skeletons (class hierarchy and members without code),
+     * which are snapshotted on disk and restored as long as the classpath does not change.
+     */
+    static ReadClasspathProvider snapshotted(ClasspathProvider provider) {
+        return new SnapshotReadClasspathProvider(provider);
+    }
+    
     byte[][] provide();
     
     int indexOf(String type);
@@ -26,6 +26,8 @@ package dev.architectury.transformer.transformers.classpath;
 import dev.architectury.transformer.Transform;
 import dev.architectury.transformer.input.MemoryFileAccess;
 import dev.architectury.transformer.transformers.ClasspathProvider;
+import dev.architectury.transformer.util.MemoryBudget;
+import dev.architectury.transformer.util.TransformerEvents;
 
 import java.io.Closeable;
 import java.io.IOException;
@@ -45,6 +47,7 @@ public class ReadClasspathProviderImpl implements ReadClasspathProvider {
     private final ClasspathProvider provider;
     private Map<String, Integer> map = new HashMap<>();
     private byte[][] classpaths;
+    private final MemoryBudget.Account account = MemoryBudget.INSTANCE.register("classpath", this, null);
     
     public ReadClasspathProviderImpl(ClasspathProvider provider) {
         this.provider = provider;
@@ -55,7 +58,7 @@ public class ReadClasspathProviderImpl implements ReadClasspathProvider {
         synchronized (this) {
             if (classpaths == null) {
                 map.clear();
-                try {
+                try (TransformerEvents.Span ignored = TransformerEvents.phase("classpath read", "read")) {
                     Transform.logTime(() -> {
                         ExecutorService threadPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
                         List<CompletableFuture<List<Map.Entry<String, byte[]>>>> futures = new ArrayList<>();
@@ -77,7 +80,8 @@ public class ReadClasspathProviderImpl implements ReadClasspathProvider {
                         classpaths = bytes.stream().peek(entry -> {
                             map.put(Transform.trimLeadingSlash(entry.getKey()), i[0]++);
                         }).map(Map.Entry::getValue).toArray(byte[][]::new);
-                        threadPool.awaitTermination(0, TimeUnit.SECONDS);
+                        account.set(Arrays.stream(classpaths).mapToLong(entry -> entry.length).sum());
+                        threadPool.shutdown();
                         
                         for (Closeable system : fsToClose) {
                             system.close();
@@ -98,6 +102,24 @@ public class ReadClasspathProviderImpl implements ReadClasspathProvider {
         return map.getOrDefault(type, -1);
     }
     
+    String[] names() {
+        provide();
+        String[] names = new String[classpaths.length];
+        map.forEach((name, index) -> names[index] = name);
+        return names;
+    }
+    
+    /**
+     * Drops the read classpath, for providers only reading it once.
+     */
+    void release() {
+        synchronized (this) {
+            classpaths = null;
+            map.clear();
+            account.close();
+        }
+    }
+    
     private CompletableFuture<List<Map.Entry<String, byte[]>>> read(PathEntry path, ExecutorService service, List<Closeable> fsToClose, boolean isParentLevel) {
         if (path.toString().endsWith(".class")) {
             return CompletableFuture.supplyAsync(() -> {
@@ -0,0 +1,241 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer.transformers.classpath;
+
+import dev.architectury.transformer.Transform;
+import dev.architectury.transformer.transformers.ClasspathProvider;
+import dev.architectury.transformer.util.HashUtils;
+import dev.architectury.transformer.util.Logger;
+import dev.architectury.transformer.util.MemoryBudget;
+import dev.architectury.transformer.util.TransformerEvents;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Provides the skeletons of the classpath classes, only keeping the class hierarchy and the member declarations.
+ * The skeletons are written to a versioned snapshot keyed by the fingerprint of the classpath, and restored
+ * from there instead of reading every classpath archive again. Only the most recently used snapshots are kept.
+ */
+public class SnapshotReadClasspathProvider implements ReadClasspathProvider {
+    private static final int MAGIC = 0x41544353;
+    private static final int VERSION = 1;
+    private static final int MAX_SNAPSHOTS = 4;
+    private final ClasspathProvider provider;
+    private final Map<String, Integer> map = new HashMap<>();
+    private byte[][] classpaths;
+    private final MemoryBudget.Account account = MemoryBudget.INSTANCE.register("classpath", this, null);
+    
+    public SnapshotReadClasspathProvider(ClasspathProvider provider) {
+        this.provider = provider;
+    }
+    
+    @Override
+    public byte[][] provide() {
+        synchronized (this) {
+            if (classpaths == null) {
+                try (TransformerEvents.Span ignored = TransformerEvents.phase("classpath read", "snapshot")) {
+                    Transform.logTime(() -> {
+                        String fingerprint = fingerprint(provider.provide());
+                        Path snapshot = Transform.getCacheDirectory().resolve("classpath-" + fingerprint + ".bin");
+                        if (Files.exists(snapshot) && restore(snapshot)) {
+                            touch(snapshot);
+                        } else {
+                            create();
+                            save(snapshot);
+                            prune(snapshot.getParent());
+                        }
+                    }, "Prepared classpath snapshot");
+                    account.set(Arrays.stream(classpaths).mapToLong(entry -> entry.length).sum());
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            
+            return classpaths;
+        }
+    }
+    
+    @Override
+    public int indexOf(String type) {
+        provide();
+        return map.getOrDefault(type, -1);
+    }
+    
+    private void create() {
+        ReadClasspathProviderImpl impl = new ReadClasspathProviderImpl(provider.logging());
+        byte[][] read = impl.provide();
+        String[] names = impl.names();
+        classpaths = new byte[read.length][];
+        map.clear();
+        for (int i = 0; i < read.length; i++) {
+            classpaths[i] = skeleton(read[i]);
+            if (names[i] != null) {
+                map.put(names[i], i);
+            }
+        }
+        impl.release();
+    }
+    
+    private static byte[] skeleton(byte[] bytes) {
+        try {
+            ClassReader reader = new ClassReader(bytes);
+            ClassWriter writer = new ClassWriter(0);
+            reader.accept(writer, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+            return writer.toByteArray();
+        } catch (RuntimeException exception) {
+            // Keep the original bytes if ASM is unable to read it
+            return bytes;
+        }
+    }
+    
+    private boolean restore(Path snapshot) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot), 65536))) {
+            long fileSize = Files.size(snapshot);
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return false;
+            }
+            int size = in.readInt();
+            // Every entry takes at least its name length and byte length, a truncated or corrupt snapshot is rejected
+            // before anything is allocated for it
+            if (size < 0 || size > (fileSize - 12) / 6) {
+                throw new IOException("Invalid class count " + size);
+            }
+            byte[][] restored = new byte[size][];
+            Map<String, Integer> restoredMap = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                String name = in.readUTF();
+                int length = in.readInt();
+                if (length < 0 || length > fileSize) {
+                    throw new IOException("Invalid class length " + length);
+                }
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                restored[i] = bytes;
+                if (!name.isEmpty()) {
+                    restoredMap.put(name, i);
+                }
+            }
+            classpaths = restored;
+            map.clear();
+            map.putAll(restoredMap);
+            Logger.debug("Restored " + size + " classpath class(es) from snapshot " + snapshot);
+            return true;
+        } catch (IOException | RuntimeException exception) {
+            Logger.debug("Failed to restore classpath snapshot " + snapshot + ": " + exception);
+            return false;
+        }
+    }
+    
+    private void save(Path snapshot) {
+        String[] names = new String[classpaths.length];
+        map.forEach((name, index) -> names[index] = name);
+        try {
+            Files.createDirectories(snapshot.getParent());
+            Path tmp = Files.createTempFile(snapshot.getParent(), "classpath", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 65536))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(classpaths.length);
+                for (int i = 0; i < classpaths.length; i++) {
+                    out.writeUTF(names[i] == null ? "" : names[i]);
+                    out.writeInt(classpaths[i].length);
+                    out.write(classpaths[i]);
+                }
+            }
+            Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Logger.debug("Saved " + classpaths.length + " classpath class(es) to snapshot " + snapshot);
+        } catch (IOException exception) {
+            Logger.debug("Failed to save classpath snapshot " + snapshot + ": " + exception);
+        }
+    }
+    
+    private static void touch(Path snapshot) {
+        try {
+            Files.setLastModifiedTime(snapshot, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException exception) {
+            Logger.debug("Failed to touch classpath snapshot " + snapshot + ": " + exception);
+        }
+    }
+    
+    /**
+     * Deletes all but the most recently used snapshots, every distinct classpath leaves one behind.
+     */
+    private static void prune(Path directory) {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> snapshots = files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith("classpath-") && name.endsWith(".bin");
+            }).sorted(Comparator.comparing(SnapshotReadClasspathProvider::lastModified).reversed()).collect(Collectors.toList());
+            for (Path snapshot : snapshots.subList(Math.min(MAX_SNAPSHOTS, snapshots.size()), snapshots.size())) {
+                Files.deleteIfExists(snapshot);
+                Logger.debug("Deleted old classpath snapshot " + snapshot);
+            }
+        } catch (IOException | UncheckedIOException exception) {
+            Logger.debug("Failed to prune classpath snapshots: " + exception);
+        }
+    }
+    
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException exception) {
+            return FileTime.fromMillis(0);
+        }
+    }
+    
+    private static String fingerprint(Path[] paths) throws IOException {
+        StringBuilder builder = new StringBuilder().append(VERSION);
+        for (Path path : paths) {
+            builder.append('\n').append(path.toAbsolutePath());
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> walk = Files.walk(path)) {
+                    walk.filter(Files::isRegularFile).sorted().forEachOrdered(file -> appendAttributes(builder.append('|').append(path.relativize(file)), file));
+                }
+            } else {
+                appendAttributes(builder, path);
+            }
+        }
+        return HashUtils.sha256(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static void appendAttributes(StringBuilder builder, Path path) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            builder.append(':').append(attributes.size()).append(':').append(attributes.lastModifiedTime().toMillis());
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+}
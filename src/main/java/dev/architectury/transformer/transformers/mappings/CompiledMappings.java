@@ -0,0 +1,233 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer.transformers.mappings;
+
+import dev.architectury.tinyremapper.IMappingProvider;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tiny mappings compiled into a compact binary form, usually memory-mapped from the cache of {@link MappingStore}.
+ * Strings and classes are decoded lazily, and lookups by name build their index on first use.
+ */
+public final class CompiledMappings {
+    static final int MAGIC = 0x41544d50;
+    static final int VERSION = 1;
+    private final ByteBuffer buffer;
+    private final List<String> namespaces;
+    private final int stringCount;
+    private final int classCount;
+    private final int stringOffsetsStart;
+    private final int classOffsetsStart;
+    private final int stringsStart;
+    private final int classesStart;
+    private final String[] strings;
+    private final Map<Integer, Map<String, Integer>> classIndices = new ConcurrentHashMap<>();
+    
+    CompiledMappings(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalStateException("Invalid compiled mappings version!");
+        }
+        int namespaceCount = buffer.getInt(8);
+        this.stringCount = buffer.getInt(12);
+        this.classCount = buffer.getInt(16);
+        int position = 20;
+        List<String> namespaces = new ArrayList<>(namespaceCount);
+        for (int i = 0; i < namespaceCount; i++) {
+            int length = buffer.getInt(position);
+            namespaces.add(decode(position + 4, length));
+            position += 4 + length;
+        }
+        this.namespaces = Collections.unmodifiableList(namespaces);
+        this.stringOffsetsStart = position;
+        this.classOffsetsStart = stringOffsetsStart + stringCount * 4;
+        int stringsLength = buffer.getInt(classOffsetsStart + classCount * 4);
+        this.stringsStart = classOffsetsStart + classCount * 4 + 4;
+        this.classesStart = stringsStart + stringsLength;
+        this.strings = new String[stringCount];
+    }
+    
+    public List<String> getNamespaces() {
+        return namespaces;
+    }
+    
+    public int getClassCount() {
+        return classCount;
+    }
+    
+    public ClassEntry getClass(int index) {
+        return new ClassEntry(classesStart + buffer.getInt(classOffsetsStart + index * 4));
+    }
+    
+    @Nullable
+    public ClassEntry getClass(String namespace, String name) {
+        int ns = namespaceIndex(namespace);
+        Integer index = classIndices.computeIfAbsent(ns, $ -> {
+            Map<String, Integer> map = new HashMap<>(classCount * 2);
+            for (int i = 0; i < classCount; i++) {
+                String className = getClass(i).getName(ns);
+                if (className != null) {
+                    map.putIfAbsent(className, i);
+                }
+            }
+            return map;
+        }).get(name);
+        return index == null ? null : getClass(index);
+    }
+    
+    /**
+     * Creates a mapping provider from the namespace {@code from} to the namespace {@code to}.
+     */
+    public IMappingProvider asProvider(String from, String to) {
+        int fromNs = namespaceIndex(from);
+        int toNs = namespaceIndex(to);
+        return sink -> {
+            for (int i = 0; i < classCount; i++) {
+                ClassEntry classEntry = getClass(i);
+                String owner = classEntry.getName(fromNs);
+                sink.acceptClass(owner, classEntry.getName(toNs));
+                for (MemberEntry method : classEntry.getMethods()) {
+                    sink.acceptMethod(new IMappingProvider.Member(owner, method.getName(fromNs), method.getDescriptor(fromNs)), method.getName(toNs));
+                }
+                for (MemberEntry field : classEntry.getFields()) {
+                    sink.acceptField(new IMappingProvider.Member(owner, field.getName(fromNs), field.getDescriptor(fromNs)), field.getName(toNs));
+                }
+            }
+        };
+    }
+    
+    public int namespaceIndex(String namespace) {
+        int index = namespaces.indexOf(namespace);
+        if (index == -1) {
+            throw new IllegalArgumentException("Unknown namespace " + namespace + ", available: " + namespaces);
+        }
+        return index;
+    }
+    
+    @Nullable
+    private String string(int index) {
+        if (index < 0) return null;
+        String string = strings[index];
+        if (string == null) {
+            int offset = stringsStart + buffer.getInt(stringOffsetsStart + index * 4);
+            strings[index] = string = decode(offset + 4, buffer.getInt(offset));
+        }
+        return string;
+    }
+    
+    private String decode(int offset, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset);
+        duplicate.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    public final class ClassEntry {
+        private final int offset;
+        private List<MemberEntry> methods;
+        private List<MemberEntry> fields;
+        
+        private ClassEntry(int offset) {
+            this.offset = offset;
+        }
+        
+        @Nullable
+        public String getName(String namespace) {
+            return getName(namespaceIndex(namespace));
+        }
+        
+        @Nullable
+        public String getName(int namespace) {
+            return string(buffer.getInt(offset + namespace * 4));
+        }
+        
+        public List<MemberEntry> getMethods() {
+            if (methods == null) {
+                readMembers();
+            }
+            return methods;
+        }
+        
+        public List<MemberEntry> getFields() {
+            if (fields == null) {
+                readMembers();
+            }
+            return fields;
+        }
+        
+        private void readMembers() {
+            int namespaceCount = namespaces.size();
+            int memberSize = namespaceCount * 8;
+            int position = offset + namespaceCount * 4;
+            int methodCount = buffer.getInt(position);
+            position += 4;
+            List<MemberEntry> methods = new ArrayList<>(methodCount);
+            for (int i = 0; i < methodCount; i++, position += memberSize) {
+                methods.add(new MemberEntry(position));
+            }
+            int fieldCount = buffer.getInt(position);
+            position += 4;
+            List<MemberEntry> fields = new ArrayList<>(fieldCount);
+            for (int i = 0; i < fieldCount; i++, position += memberSize) {
+                fields.add(new MemberEntry(position));
+            }
+            this.methods = methods;
+            this.fields = fields;
+        }
+    }
+    
+    public final class MemberEntry {
+        private final int offset;
+        
+        private MemberEntry(int offset) {
+            this.offset = offset;
+        }
+        
+        @Nullable
+        public String getName(String namespace) {
+            return getName(namespaceIndex(namespace));
+        }
+        
+        @Nullable
+        public String getName(int namespace) {
+            return string(buffer.getInt(offset + namespace * 4));
+        }
+        
+        @Nullable
+        public String getDescriptor(String namespace) {
+            return getDescriptor(namespaceIndex(namespace));
+        }
+        
+        @Nullable
+        public String getDescriptor(int namespace) {
+            return string(buffer.getInt(offset + (namespaces.size() + namespace) * 4));
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer.transformers.mappings;
+
+import dev.architectury.transformer.transformers.BuiltinProperties;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Index from intermediary names to srg names, looked up by name, owner and descriptor without building composite keys.
+ */
+public final class IntermediarySrgIndex {
+    private static final Map<CompiledMappings, IntermediarySrgIndex> CACHE = Collections.synchronizedMap(new WeakHashMap<>());
+    private final Map<String, String> classes = new HashMap<>();
+    private final MemberIndex methods = new MemberIndex();
+    private final MemberIndex fields = new MemberIndex();
+    
+    private IntermediarySrgIndex(CompiledMappings mappings) {
+        int intermediary = mappings.namespaceIndex("intermediary");
+        int srg = mappings.namespaceIndex("srg");
+        for (int i = 0; i < mappings.getClassCount(); i++) {
+            CompiledMappings.ClassEntry classEntry = mappings.getClass(i);
+            String owner = classEntry.getName(intermediary);
+            classes.put(owner, classEntry.getName(srg));
+            
+            for (CompiledMappings.MemberEntry method : classEntry.getMethods()) {
+                methods.add(owner, method.getName(intermediary), method.getDescriptor(intermediary), method.getName(srg));
+            }
+            
+            for (CompiledMappings.MemberEntry field : classEntry.getFields()) {
+                fields.add(owner, field.getName(intermediary), field.getDescriptor(intermediary), field.getName(srg));
+            }
+        }
+    }
+    
+    public static IntermediarySrgIndex fromProperties() throws IOException {
+        return of(Paths.get(System.getProperty(BuiltinProperties.MAPPINGS_WITH_SRG)));
+    }
+    
+    public static IntermediarySrgIndex of(Path path) throws IOException {
+        return CACHE.computeIfAbsent(MappingStore.get(path), IntermediarySrgIndex::new);
+    }
+    
+    @Nullable
+    public String mapClass(String intermediary) {
+        return classes.get(intermediary);
+    }
+    
+    /**
+     * Maps a method to srg, preferring the exact owner and falling back to the first method with the same name
+     * and descriptor. Returns null without a descriptor, as the name may be overloaded.
+     */
+    @Nullable
+    public String mapMethod(@Nullable String owner, String name, @Nullable String descriptor) {
+        return methods.get(owner, name, descriptor);
+    }
+    
+    /**
+     * Maps a method to srg by its name alone, returning the first method with that name.
+     */
+    @Nullable
+    public String mapMethodByName(String name) {
+        return methods.byName.get(name);
+    }
+    
+    /**
+     * Maps a field to srg, preferring the exact owner and falling back to the first field with the same name
+     * and descriptor. Returns null without a descriptor, as the name may be overloaded.
+     */
+    @Nullable
+    public String mapField(@Nullable String owner, String name, @Nullable String descriptor) {
+        return fields.get(owner, name, descriptor);
+    }
+    
+    /**
+     * Maps a field to srg by its name alone, returning the first field with that name.
+     */
+    @Nullable
+    public String mapFieldByName(String name) {
+        return fields.byName.get(name);
+    }
+    
+    private static class MemberIndex {
+        // owner -> name -> descriptor -> srg
+        private final Map<String, Map<String, Map<String, String>>> byOwner = new HashMap<>();
+        // name -> descriptor -> srg, the first member wins
+        private final Map<String, Map<String, String>> byDescriptor = new HashMap<>();
+        // name -> srg, the first member wins
+        private final Map<String, String> byName = new HashMap<>();
+        
+        private void add(String owner, String name, String descriptor, String srg) {
+            byOwner.computeIfAbsent(owner, $ -> new HashMap<>())
+                    .computeIfAbsent(name, $ -> new HashMap<>(2))
+                    .put(descriptor, srg);
+            byDescriptor.computeIfAbsent(name, $ -> new HashMap<>(2)).putIfAbsent(descriptor, srg);
+            byName.putIfAbsent(name, srg);
+        }
+        
+        @Nullable
+        private String get(@Nullable String owner, String name, @Nullable String descriptor) {
+            // References without a descriptor are left alone, as the name may be overloaded
+            if (descriptor == null) return null;
+            if (owner != null) {
+                Map<String, Map<String, String>> members = byOwner.get(owner);
+                if (members != null) {
+                    Map<String, String> descriptors = members.get(name);
+                    if (descriptors != null) {
+                        String srg = descriptors.get(descriptor);
+                        if (srg != null) return srg;
+                    }
+                }
+            }
+            Map<String, String> descriptors = byDescriptor.get(name);
+            return descriptors == null ? null : descriptors.get(descriptor);
+        }
+    }
+}
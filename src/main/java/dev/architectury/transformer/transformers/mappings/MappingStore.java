@@ -0,0 +1,221 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer.transformers.mappings;
+
+import dev.architectury.tinyremapper.IMappingProvider;
+import dev.architectury.transformer.Transform;
+import dev.architectury.transformer.util.HashUtils;
+import dev.architectury.transformer.util.Logger;
+import net.fabricmc.mapping.tree.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide store of tiny mappings, compiled once into {@link CompiledMappings} and cached on disk by content hash.
+ */
+public final class MappingStore {
+    private static final Map<String, CompiledMappings> MAPPINGS = new ConcurrentHashMap<>();
+    private static final Map<Path, FileKey> HASHES = new ConcurrentHashMap<>();
+    
+    private MappingStore() {}
+    
+    public static CompiledMappings get(Path path) throws IOException {
+        String hash = hash(path.toAbsolutePath().normalize());
+        try {
+            return MAPPINGS.computeIfAbsent(hash, $ -> {
+                try {
+                    return load(path, hash);
+                } catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+            });
+        } catch (UncheckedIOException exception) {
+            throw exception.getCause();
+        }
+    }
+    
+    /**
+     * Creates a mapping provider that resolves the compiled mappings on every load,
+     * so changes to the file are picked up.
+     */
+    public static IMappingProvider provider(Path path, String from, String to) {
+        return sink -> {
+            try {
+                get(path).asProvider(from, to).load(sink);
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        };
+    }
+    
+    private static String hash(Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        FileKey key = HASHES.get(path);
+        if (key == null || key.size != attributes.size() || key.lastModified != attributes.lastModifiedTime().toMillis()) {
+            FileKey previous = key;
+            key = new FileKey(attributes.size(), attributes.lastModifiedTime().toMillis(), HashUtils.sha256(Files.readAllBytes(path)));
+            HASHES.put(path, key);
+            if (previous != null && !previous.hash.equals(key.hash)) {
+                // Drop the outdated mappings, e.g. mixin mappings that are regenerated on every compile
+                MAPPINGS.remove(previous.hash);
+            }
+        }
+        return key.hash;
+    }
+    
+    private static CompiledMappings load(Path path, String hash) throws IOException {
+        Path compiled = Transform.getCacheDirectory().resolve("mappings").resolve(hash + ".bin");
+        if (Files.exists(compiled)) {
+            try {
+                return map(compiled);
+            } catch (IOException | RuntimeException exception) {
+                Logger.debug("Failed to read compiled mappings " + compiled + ", recompiling: " + exception);
+            }
+        }
+        
+        TinyTree tree;
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            tree = TinyMappingFactory.loadWithDetection(reader);
+        }
+        byte[] bytes = compile(tree);
+        try {
+            Files.createDirectories(compiled.getParent());
+            Path tmp = Files.createTempFile(compiled.getParent(), hash, ".tmp");
+            Files.write(tmp, bytes);
+            Files.move(tmp, compiled, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Logger.debug("Compiled mappings " + path + " to " + compiled);
+            return map(compiled);
+        } catch (IOException exception) {
+            Logger.debug("Failed to cache compiled mappings " + compiled + ": " + exception);
+            return new CompiledMappings(ByteBuffer.wrap(bytes));
+        }
+    }
+    
+    private static CompiledMappings map(Path compiled) throws IOException {
+        try (FileChannel channel = FileChannel.open(compiled, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new CompiledMappings(buffer);
+        }
+    }
+    
+    private static byte[] compile(TinyTree tree) throws IOException {
+        List<String> namespaces = tree.getMetadata().getNamespaces();
+        Map<String, Integer> stringIndices = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        ByteArrayOutputStream classesBytes = new ByteArrayOutputStream();
+        DataOutputStream classes = new DataOutputStream(classesBytes);
+        List<Integer> classOffsets = new ArrayList<>();
+        
+        for (ClassDef classDef : tree.getClasses()) {
+            classOffsets.add(classes.size());
+            writeNames(classes, classDef, namespaces, stringIndices, strings, false);
+            Collection<MethodDef> methods = classDef.getMethods();
+            classes.writeInt(methods.size());
+            for (MethodDef method : methods) {
+                writeNames(classes, method, namespaces, stringIndices, strings, true);
+            }
+            Collection<FieldDef> fields = classDef.getFields();
+            classes.writeInt(fields.size());
+            for (FieldDef field : fields) {
+                writeNames(classes, field, namespaces, stringIndices, strings, true);
+            }
+        }
+        
+        ByteArrayOutputStream stringsBytes = new ByteArrayOutputStream();
+        DataOutputStream stringsOut = new DataOutputStream(stringsBytes);
+        int[] stringOffsets = new int[strings.size()];
+        for (int i = 0; i < strings.size(); i++) {
+            stringOffsets[i] = stringsOut.size();
+            byte[] bytes = strings.get(i).getBytes(StandardCharsets.UTF_8);
+            stringsOut.writeInt(bytes.length);
+            stringsOut.write(bytes);
+        }
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(CompiledMappings.MAGIC);
+        data.writeInt(CompiledMappings.VERSION);
+        data.writeInt(namespaces.size());
+        data.writeInt(strings.size());
+        data.writeInt(classOffsets.size());
+        for (String namespace : namespaces) {
+            byte[] bytes = namespace.getBytes(StandardCharsets.UTF_8);
+            data.writeInt(bytes.length);
+            data.write(bytes);
+        }
+        for (int offset : stringOffsets) {
+            data.writeInt(offset);
+        }
+        for (int offset : classOffsets) {
+            data.writeInt(offset);
+        }
+        data.writeInt(stringsOut.size());
+        stringsBytes.writeTo(data);
+        classesBytes.writeTo(data);
+        data.flush();
+        return out.toByteArray();
+    }
+    
+    private static void writeNames(DataOutputStream out, Mapped mapped, List<String> namespaces, Map<String, Integer> stringIndices, List<String> strings, boolean descriptored) throws IOException {
+        for (String namespace : namespaces) {
+            out.writeInt(intern(mapped.getName(namespace), stringIndices, strings));
+        }
+        if (descriptored) {
+            for (String namespace : namespaces) {
+                out.writeInt(intern(((Descriptored) mapped).getDescriptor(namespace), stringIndices, strings));
+            }
+        }
+    }
+    
+    private static int intern(String string, Map<String, Integer> stringIndices, List<String> strings) {
+        if (string == null) return -1;
+        return stringIndices.computeIfAbsent(string, s -> {
+            strings.add(s);
+            return strings.size() - 1;
+        });
+    }
+    
+    private static class FileKey {
+        private final long size;
+        private final long lastModified;
+        private final String hash;
+        
+        private FileKey(long size, long lastModified, String hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer.transformers.mappings;
+
+import org.objectweb.asm.commons.Remapper;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * A {@link Remapper} relocating internal names by exact matches first, then by the longest matching prefix.
+ * The prefixes are compiled into a trie, and every name, descriptor and signature is only rewritten once.
+ */
+public final class PrefixRemapper extends Remapper {
+    private final Map<String, String> exact;
+    private final TrieNode root;
+    private final ConcurrentHashMap<String, String> names = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> descriptors = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> methodDescriptors = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> typeSignatures = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> signatures = new ConcurrentHashMap<>();
+    
+    public PrefixRemapper(Map<String, String> exact, Map<String, String> prefixes) {
+        this.exact = new HashMap<>(exact);
+        this.root = TrieNode.compile(prefixes);
+    }
+    
+    @Override
+    public String map(String internalName) {
+        String mapped = names.get(internalName);
+        if (mapped == null) {
+            mapped = computeName(internalName);
+            names.putIfAbsent(internalName, mapped);
+        }
+        return mapped;
+    }
+    
+    private String computeName(String internalName) {
+        String mapped = exact.get(internalName);
+        if (mapped != null) return mapped;
+        TrieNode node = root;
+        String replacement = null;
+        int matched = 0;
+        for (int i = 0; i < internalName.length() && node != null; i++) {
+            node = node.child(internalName.charAt(i));
+            if (node != null && node.replacement != null) {
+                replacement = node.replacement;
+                matched = i + 1;
+            }
+        }
+        return replacement == null ? internalName : replacement + internalName.substring(matched);
+    }
+    
+    @Override
+    public String mapDesc(String descriptor) {
+        return memoize(descriptors, descriptor, super::mapDesc);
+    }
+    
+    @Override
+    public String mapMethodDesc(String methodDescriptor) {
+        return memoize(methodDescriptors, methodDescriptor, super::mapMethodDesc);
+    }
+    
+    @Override
+    public String mapSignature(String signature, boolean typeSignature) {
+        if (signature == null) return null;
+        if (typeSignature) {
+            return memoize(typeSignatures, signature, s -> super.mapSignature(s, true));
+        }
+        
+        return memoize(signatures, signature, s -> super.mapSignature(s, false));
+    }
+    
+    private static String memoize(ConcurrentHashMap<String, String> cache, String value, UnaryOperator<String> function) {
+        String mapped = cache.get(value);
+        if (mapped == null) {
+            mapped = function.apply(value);
+            cache.putIfAbsent(value, mapped);
+        }
+        return mapped;
+    }
+    
+    private static final class TrieNode {
+        private static final char[] NO_KEYS = new char[0];
+        private static final TrieNode[] NO_CHILDREN = new TrieNode[0];
+        private char[] keys = NO_KEYS;
+        private TrieNode[] children = NO_CHILDREN;
+        private String replacement;
+        
+        private static TrieNode compile(Map<String, String> prefixes) {
+            TrieNode root = new TrieNode();
+            for (Map.Entry<String, String> entry : prefixes.entrySet()) {
+                TrieNode node = root;
+                String prefix = entry.getKey();
+                for (int i = 0; i < prefix.length(); i++) {
+                    node = node.getOrCreate(prefix.charAt(i));
+                }
+                node.replacement = entry.getValue();
+            }
+            return root;
+        }
+        
+        private TrieNode child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? children[index] : null;
+        }
+        
+        private TrieNode getOrCreate(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index >= 0) return children[index];
+            int insertion = -index - 1;
+            char[] newKeys = new char[keys.length + 1];
+            TrieNode[] newChildren = new TrieNode[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertion);
+            System.arraycopy(children, 0, newChildren, 0, insertion);
+            System.arraycopy(keys, insertion, newKeys, insertion + 1, keys.length - insertion);
+            System.arraycopy(children, insertion, newChildren, insertion + 1, children.length - insertion);
+            TrieNode node = new TrieNode();
+            newKeys[insertion] = c;
+            newChildren[insertion] = node;
+            keys = newKeys;
+            children = newChildren;
+            return node;
+        }
+    }
+}
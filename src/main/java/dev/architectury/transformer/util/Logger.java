@@ -26,28 +26,40 @@ package dev.architectury.transformer.util;
 import dev.architectury.transformer.transformers.BuiltinProperties;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Comparator;
+import java.util.Locale;
 import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 public class Logger {
+    private static final String DIRECTORY = ".architectury-transformer";
+    private static final int BUFFER_SIZE = 8192;
+    private static final BlockingQueue<Record> QUEUE = new ArrayBlockingQueue<>(BUFFER_SIZE);
+    private static final AtomicInteger DROPPED = new AtomicInteger();
     private static String previousLocation = null;
     private static Boolean verbose = null;
-    private static PrintWriter writer;
+    private static volatile Level level = null;
+    private static Sink sink;
+    private static Thread writerThread;
     
     private Logger() {}
     
-    private static PrintWriter getWriter() {
+    private static synchronized Sink getSink() {
         String dir = System.getProperty(BuiltinProperties.LOCATION, System.getProperty("user.dir"));
-        if (writer == null || !Objects.equals(dir, previousLocation)) {
+        if (sink == null || !Objects.equals(dir, previousLocation)) {
             previousLocation = dir;
-            if (writer != null) {
-                writer.close();
-            }
+            // The old sink is closed by the writer thread once everything queued for it is written
             try {
-                File logFile = new File(dir, ".architectury-transformer/debug.log");
+                File logFile = new File(dir, DIRECTORY + "/debug.log");
                 if (logFile.getParentFile().exists()) {
                     try (Stream<Path> walk = Files.walk(logFile.getParentFile().toPath())) {
                         walk.sorted(Comparator.reverseOrder())
@@ -56,36 +68,146 @@ public class Logger {
                     }
                 }
                 logFile.getParentFile().mkdirs();
-                writer = new PrintWriter(new FileWriter(logFile, false), true);
+                sink = new Sink(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(logFile, false), StandardCharsets.UTF_8)));
             } catch (IOException exception) {
                 throw new UncheckedIOException(exception);
             }
+            startWriter();
+        }
+        return sink;
+    }
+    
+    /**
+     * Returns the directory of the debug log, for reports written next to it.
+     */
+    public static synchronized File getDirectory() {
+        getSink();
+        return new File(previousLocation, DIRECTORY);
+    }
+    
+    private static void startWriter() {
+        if (writerThread != null) return;
+        writerThread = new Thread(Logger::drain, "Architectury Transformer Logger");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        try {
+            Runtime.getRuntime().addShutdownHook(new Thread(Logger::flush, "Architectury Transformer Logger Shutdown"));
+        } catch (IllegalStateException | SecurityException ignored) {
+            // Already shutting down, or not allowed to, lines are still flushed whenever the buffer runs dry
+        }
+    }
+    
+    private static void drain() {
+        Sink current = null;
+        while (true) {
+            try {
+                Record record = QUEUE.poll();
+                if (record == null) {
+                    if (current != null) {
+                        writeDropped(current);
+                        current.flush();
+                    }
+                    record = QUEUE.take();
+                }
+                if (current != record.sink) {
+                    if (current != null) current.close();
+                    current = record.sink;
+                }
+                writeDropped(current);
+                if (record.flushed != null) {
+                    current.flush();
+                    record.flushed.countDown();
+                } else {
+                    current.write(record.line);
+                }
+            } catch (InterruptedException ignored) {
+                return;
+            }
+        }
+    }
+    
+    private static void writeDropped(Sink sink) {
+        int dropped = DROPPED.getAndSet(0);
+        if (dropped > 0) {
+            sink.write("[Architectury Transformer DEBUG] Dropped " + dropped + " debug line(s), the log writer fell behind");
+        }
+    }
+    
+    private static void write(String line) {
+        write(line, false);
+    }
+    
+    /**
+     * Queues the line for the writer thread. Droppable lines are counted and dropped instead of blocking the caller
+     * on disk I/O when the writer fell behind.
+     */
+    private static void write(String line, boolean droppable) {
+        Record record = new Record(getSink(), line, null);
+        if (droppable) {
+            if (!QUEUE.offer(record)) {
+                DROPPED.incrementAndGet();
+            }
+            return;
+        }
+        try {
+            QUEUE.put(record);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            record.sink.write(line);
+        }
+    }
+    
+    /**
+     * Blocks until every line queued before this call has been written to the debug log, the writer thread
+     * flushes the log once it reaches the marker queued here.
+     */
+    public static void flush() {
+        Sink current;
+        synchronized (Logger.class) {
+            current = sink;
+        }
+        if (current == null) return;
+        Record marker = new Record(current, null, new CountDownLatch(1));
+        try {
+            if (QUEUE.offer(marker, 5, TimeUnit.SECONDS)) {
+                marker.flushed.await(5, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
         }
-        return writer;
     }
     
     public static void info(String str) {
+        if (!isEnabled(Level.INFO)) return;
         String s = "[Architectury Transformer] " + str;
         System.out.println(s);
-        getWriter().println(s);
+        write(s);
     }
     
     public static void info(String str, Object... args) {
+        if (!isEnabled(Level.INFO)) return;
         info(String.format(str, args));
     }
     
     public static void debug(String str) {
+        if (!isDebugEnabled()) return;
         String s = "[Architectury Transformer DEBUG] " + str;
         if (isVerbose()) {
             System.out.println(s);
         }
-        getWriter().println(s);
+        write(s, true);
     }
     
     public static void debug(String str, Object... args) {
+        if (!isDebugEnabled()) return;
         debug(String.format(str, args));
     }
     
+    public static void debug(Supplier<String> str) {
+        if (!isDebugEnabled()) return;
+        debug(str.get());
+    }
+    
     public static boolean isVerbose() {
         if (verbose == null) {
             verbose = System.getProperty(BuiltinProperties.VERBOSE, "false").equals("true");
@@ -94,13 +216,104 @@ public class Logger {
         return verbose;
     }
     
+    public static boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+    
+    public static boolean isEnabled(Level level) {
+        return level.ordinal() >= getLevel().ordinal();
+    }
+    
+    /**
+     * Returns the lowest level that is logged, {@link Level#INFO} by default, or {@link Level#DEBUG} when verbose.
+     */
+    public static Level getLevel() {
+        Level level = Logger.level;
+        if (level == null) {
+            return initLevel();
+        }
+        
+        return level;
+    }
+    
+    private static synchronized Level initLevel() {
+        Level level = Logger.level;
+        if (level == null) {
+            String property = System.getProperty(BuiltinProperties.LOG_LEVEL);
+            level = isVerbose() ? Level.DEBUG : Level.INFO;
+            if (property != null) {
+                try {
+                    level = Level.valueOf(property.toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException exception) {
+                    System.err.println("[Architectury Transformer] Unknown log level '" + property + "', falling back to " + level);
+                }
+            }
+            Logger.level = level;
+        }
+        
+        return level;
+    }
+    
     public static void error(String str) {
         String s = "[Architectury Transformer] " + str;
         System.err.println(s);
-        getWriter().println(s);
+        write(s);
     }
     
     public static void error(String str, Object... args) {
         error(String.format(str, args));
     }
+    
+    public enum Level {
+        DEBUG,
+        INFO,
+        ERROR,
+    }
+    
+    private static class Record {
+        private final Sink sink;
+        private final String line;
+        private final CountDownLatch flushed;
+        
+        private Record(Sink sink, String line, CountDownLatch flushed) {
+            this.sink = sink;
+            this.line = line;
+            this.flushed = flushed;
+        }
+    }
+    
+    private static class Sink {
+        private final Writer writer;
+        private boolean closed;
+        
+        private Sink(Writer writer) {
+            this.writer = writer;
+        }
+        
+        private synchronized void write(String line) {
+            if (closed) return;
+            try {
+                writer.write(line);
+                writer.write(System.lineSeparator());
+            } catch (IOException ignored) {
+            }
+        }
+        
+        private synchronized void flush() {
+            if (closed) return;
+            try {
+                writer.flush();
+            } catch (IOException ignored) {
+            }
+        }
+        
+        private synchronized void close() {
+            if (closed) return;
+            closed = true;
+            try {
+                writer.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
 }
@@ -26,21 +26,36 @@ package dev.architectury.transformer.util;
 import java.io.PrintStream;
 
 public class LoggerFilter {
+    private static final String UNKNOWN_BSM = "unknown invokedynamic bsm: %s/%s%s (tag=%d iif=%b)%n";
+    
+    /**
+     * Installs the TinyRemapper output filter, this is a no-op if {@link System#out} is already filtered.
+     */
     public static void replaceSystemOut() {
         try {
             PrintStream previous = System.out;
-            System.setOut(new PrintStream(previous) {
-                @Override
-                public PrintStream printf(String format, Object... args) {
-                    if (format.equals("unknown invokedynamic bsm: %s/%s%s (tag=%d iif=%b)%n")) {
-                        return this;
-                    }
-                    
-                    return super.printf(format, args);
-                }
-            });
+            if (previous instanceof FilteredPrintStream) return;
+            synchronized (LoggerFilter.class) {
+                if (System.out instanceof FilteredPrintStream) return;
+                System.setOut(new FilteredPrintStream(System.out));
+            }
         } catch (SecurityException ignored) {
             // Failed to replace logger filter, just ignore
         }
     }
+    
+    private static class FilteredPrintStream extends PrintStream {
+        private FilteredPrintStream(PrintStream out) {
+            super(out);
+        }
+        
+        @Override
+        public PrintStream printf(String format, Object... args) {
+            if (format.equals(UNKNOWN_BSM)) {
+                return this;
+            }
+            
+            return super.printf(format, args);
+        }
+    }
 }
@@ -0,0 +1,273 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer.util;
+
+import dev.architectury.transformer.transformers.BuiltinProperties;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Accounts the bytes held by the in-memory stores, like memory file accesses, file access caches and the read
+ * classpath, with their current and peak usage.
+ * <p>
+ * Past the budget set with {@link BuiltinProperties#MEMORY_BUDGET}, in bytes (with an optional k, m or g suffix)
+ * or as a percentage of the maximum heap, the stores holding the most are asked to give memory back until the usage
+ * is down to {@value #RELIEF_PERCENT}% of the budget. Without a budget the usage is only accounted.
+ */
+public final class MemoryBudget {
+    public static final MemoryBudget INSTANCE = new MemoryBudget(parseSize(System.getProperty(BuiltinProperties.MEMORY_BUDGET)));
+    private static final int RELIEF_PERCENT = 80;
+    private final Set<Account> accounts = ConcurrentHashMap.newKeySet();
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+    private final Map<String, AtomicLong> kinds = new ConcurrentHashMap<>();
+    private final AtomicLong current = new AtomicLong();
+    private final LongAccumulator peak = new LongAccumulator(Math::max, 0);
+    private final AtomicBoolean relieving = new AtomicBoolean();
+    private volatile long budget;
+    private volatile boolean overBudget = false;
+    
+    private MemoryBudget(long budget) {
+        this.budget = budget;
+    }
+    
+    /**
+     * Parses a size in bytes, with an optional k, m or g suffix, or as a percentage of the maximum heap.
+     * Returns 0 if there is no size.
+     */
+    public static long parseSize(@Nullable String value) {
+        if (value == null || value.trim().isEmpty()) return 0;
+        String trimmed = value.trim().toLowerCase(Locale.ROOT);
+        if (trimmed.endsWith("%")) {
+            return (long) (Runtime.getRuntime().maxMemory() * Double.parseDouble(trimmed.substring(0, trimmed.length() - 1)) / 100);
+        }
+        long multiplier = 1;
+        switch (trimmed.charAt(trimmed.length() - 1)) {
+            // Each suffix falls through to the smaller ones
+            case 'g':
+                multiplier *= 1024;
+            case 'm':
+                multiplier *= 1024;
+            case 'k':
+                multiplier *= 1024;
+                trimmed = trimmed.substring(0, trimmed.length() - 1);
+        }
+        return Long.parseLong(trimmed.trim()) * multiplier;
+    }
+    
+    /**
+     * Registers a store, which is released once the owner is closed or collected. The reclaimer is called from any
+     * thread, with the owner and the number of bytes to give back.
+     */
+    public <T> Account register(String kind, T owner, @Nullable Reclaimer<T> reclaimer) {
+        expunge();
+        Account account = new Account(kind, owner, reclaimer);
+        accounts.add(account);
+        return account;
+    }
+    
+    /**
+     * Returns the budget in bytes, or 0 if there is none.
+     */
+    public long getBudget() {
+        return budget;
+    }
+    
+    public void setBudget(long budget) {
+        this.budget = budget;
+        checkBudget();
+    }
+    
+    public long getCurrent() {
+        expunge();
+        return current.get();
+    }
+    
+    public long getPeak() {
+        return peak.get();
+    }
+    
+    public void resetPeak() {
+        peak.reset();
+        peak.accumulate(current.get());
+    }
+    
+    /**
+     * Returns the bytes currently held per kind of store, with the total, peak and budget.
+     */
+    public Map<String, Long> getUsage() {
+        expunge();
+        Map<String, Long> usage = new TreeMap<>();
+        kinds.forEach((kind, bytes) -> usage.put(kind, bytes.get()));
+        usage.put("current", current.get());
+        usage.put("peak", peak.get());
+        usage.put("budget", budget);
+        return usage;
+    }
+    
+    public String describe() {
+        StringJoiner joiner = new StringJoiner(", ");
+        kinds.forEach((kind, bytes) -> {
+            if (bytes.get() != 0) joiner.add(kind + " " + formatBytes(bytes.get()));
+        });
+        return "current " + formatBytes(current.get()) + (joiner.length() > 0 ? " (" + joiner + ")" : "") + ", peak " + formatBytes(peak.get())
+               + (budget > 0 ? ", budget " + formatBytes(budget) : "");
+    }
+    
+    public static String formatBytes(long bytes) {
+        if (Math.abs(bytes) < 1024) return bytes + " B";
+        if (Math.abs(bytes) < 1024 * 1024) return String.format(Locale.ROOT, "%.1f KB", bytes / 1024.0);
+        if (Math.abs(bytes) < 1024 * 1024 * 1024) return String.format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024.0));
+        return String.format(Locale.ROOT, "%.2f GB", bytes / (1024.0 * 1024.0 * 1024.0));
+    }
+    
+    private void record(String kind, long bytes) {
+        kinds.computeIfAbsent(kind, $ -> new AtomicLong()).addAndGet(bytes);
+        peak.accumulate(current.addAndGet(bytes));
+    }
+    
+    /**
+     * Releases the accounts of stores that were collected without being closed.
+     */
+    private void expunge() {
+        Account account;
+        while ((account = (Account) collected.poll()) != null) {
+            account.close();
+        }
+    }
+    
+    private void checkBudget() {
+        long budget = this.budget;
+        if (budget <= 0 || current.get() <= budget) {
+            overBudget = false;
+            return;
+        }
+        // Reclaiming releases memory through the accounts again, only one thread relieves at a time
+        if (!relieving.compareAndSet(false, true)) return;
+        try {
+            expunge();
+            long target = budget / 100 * RELIEF_PERCENT;
+            List<Account> candidates = new ArrayList<>();
+            for (Account account : accounts) {
+                if (account.reclaimer != null && account.used.get() > 0) {
+                    candidates.add(account);
+                }
+            }
+            candidates.sort(Comparator.comparingLong((Account account) -> account.used.get()).reversed());
+            for (Account account : candidates) {
+                long excess = current.get() - target;
+                if (excess <= 0) break;
+                account.reclaim(excess);
+            }
+            if (current.get() > budget) {
+                if (!overBudget) {
+                    overBudget = true;
+                    Logger.info("Over the memory budget with nothing left to reclaim: " + describe());
+                }
+            } else {
+                overBudget = false;
+                Logger.debug(() -> "Reclaimed memory to stay within the budget: " + describe());
+            }
+        } finally {
+            relieving.set(false);
+        }
+    }
+    
+    @FunctionalInterface
+    public interface Reclaimer<T> {
+        /**
+         * Gives back at least the given number of bytes if possible, reporting them to the account of the owner.
+         */
+        void reclaim(T owner, long bytes);
+    }
+    
+    /**
+     * The bytes held by a single store. Only the owner is weakly referenced, so the account outlives it and releases
+     * the bytes once the owner is collected.
+     */
+    public final class Account extends WeakReference<Object> {
+        private final String kind;
+        @Nullable
+        private final Reclaimer<Object> reclaimer;
+        private final AtomicLong used = new AtomicLong();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        
+        @SuppressWarnings("unchecked")
+        private <T> Account(String kind, T owner, @Nullable Reclaimer<T> reclaimer) {
+            super(owner, collected);
+            this.kind = kind;
+            this.reclaimer = (Reclaimer<Object>) reclaimer;
+        }
+        
+        /**
+         * Adds the bytes to the usage of the store, negative to release them.
+         */
+        public void add(long bytes) {
+            if (bytes == 0 || closed.get()) return;
+            used.addAndGet(bytes);
+            record(kind, bytes);
+            if (bytes > 0) {
+                checkBudget();
+            }
+        }
+        
+        public void set(long bytes) {
+            if (closed.get()) return;
+            long previous = used.getAndSet(bytes);
+            record(kind, bytes - previous);
+            if (bytes > previous) {
+                checkBudget();
+            }
+        }
+        
+        public long getUsed() {
+            return used.get();
+        }
+        
+        private void reclaim(long bytes) {
+            Object owner = get();
+            if (owner == null) return;
+            try {
+                reclaimer.reclaim(owner, bytes);
+            } catch (RuntimeException exception) {
+                Logger.debug("Failed to reclaim memory from " + kind + ": " + exception);
+            }
+        }
+        
+        /**
+         * Releases everything the store held, nothing is accounted afterwards.
+         */
+        public void close() {
+            if (closed.getAndSet(true)) return;
+            record(kind, -used.getAndSet(0));
+            accounts.remove(this);
+        }
+    }
+}
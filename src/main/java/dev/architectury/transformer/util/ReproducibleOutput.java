@@ -0,0 +1,214 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer.util;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import dev.architectury.transformer.input.FileView;
+import dev.architectury.transformer.transformers.BuiltinProperties;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Helpers for the reproducible output mode, in which unchanged inputs produce byte-identical outputs.
+ */
+public class ReproducibleOutput {
+    /**
+     * The timestamp given to every entry, matching the one Gradle uses for reproducible archives.
+     */
+    public static final long CONSTANT_TIME = new GregorianCalendar(1980, Calendar.FEBRUARY, 1, 0, 0, 0).getTimeInMillis();
+    private static final Comparator<String> ENTRY_ORDER = Comparator.comparingInt(ReproducibleOutput::entryRank)
+            .thenComparing(Comparator.naturalOrder());
+    
+    private ReproducibleOutput() {}
+    
+    public static boolean isEnabled() {
+        return System.getProperty(BuiltinProperties.REPRODUCIBLE, "false").equals("true");
+    }
+    
+    /**
+     * Hashes the paths and contents of the view, independent of the order they are visited in.
+     */
+    @SuppressWarnings("UnstableApiUsage")
+    public static String contentHash(FileView view) throws IOException {
+        SortedMap<String, String> hashes = new TreeMap<>();
+        view.handle((path, bytes) -> hashes.put(normalizePath(path), HashUtils.sha256(bytes)));
+        Hasher hasher = Hashing.sha256().newHasher();
+        hashes.forEach((path, hash) -> {
+            hasher.putString(path, StandardCharsets.UTF_8);
+            hasher.putByte((byte) 0);
+            hasher.putString(hash, StandardCharsets.UTF_8);
+        });
+        return hasher.hash().toString();
+    }
+    
+    /**
+     * Writes a zip of the entries sorted by path, every entry carrying {@link #CONSTANT_TIME}.
+     */
+    public static byte[] toZip(Map<String, byte[]> entries) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream(8192);
+        try (ZipOutputStream zos = new ZipOutputStream(stream)) {
+            SortedMap<String, byte[]> sorted = new TreeMap<>(ENTRY_ORDER);
+            entries.forEach((path, bytes) -> sorted.put(normalizePath(path), bytes));
+            for (Map.Entry<String, byte[]> entry : sorted.entrySet()) {
+                zos.putNextEntry(newEntry(entry.getKey()));
+                zos.write(entry.getValue());
+                zos.closeEntry();
+            }
+        }
+        return stream.toByteArray();
+    }
+    
+    /**
+     * Rewrites the jar with sorted entries and normalized timestamps.
+     */
+    public static void normalizeJar(Path jar) throws IOException {
+        Path tmp = jar.resolveSibling(jar.getFileName() + ".normalizing");
+        try (ZipFile zipFile = new ZipFile(jar.toFile());
+             ZipOutputStream zos = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            List<String> names = new ArrayList<>();
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                names.add(entries.nextElement().getName());
+            }
+            names.sort(ENTRY_ORDER);
+            byte[] buffer = new byte[8192];
+            for (String name : names) {
+                ZipEntry entry = zipFile.getEntry(name);
+                zos.putNextEntry(newEntry(name));
+                if (!entry.isDirectory()) {
+                    try (InputStream in = zipFile.getInputStream(entry)) {
+                        int read;
+                        while ((read = in.read(buffer)) != -1) {
+                            zos.write(buffer, 0, read);
+                        }
+                    }
+                }
+                zos.closeEntry();
+            }
+        }
+        try {
+            Files.move(tmp, jar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException exception) {
+            Files.move(tmp, jar, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    /**
+     * Sets the modification time of every file under the directory to {@link #CONSTANT_TIME}.
+     */
+    public static void normalizeDirectory(Path directory) throws IOException {
+        FileTime time = FileTime.fromMillis(CONSTANT_TIME);
+        try (Stream<Path> walk = Files.walk(directory)) {
+            walk.forEach(path -> {
+                try {
+                    Files.setLastModifiedTime(path, time);
+                } catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+            });
+        }
+    }
+    
+    /**
+     * Writes the manifest with {@code Manifest-Version} first, and the remaining attributes and entries sorted by name.
+     */
+    public static byte[] writeManifest(Manifest manifest) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        Attributes main = manifest.getMainAttributes();
+        Object version = main.get(Attributes.Name.MANIFEST_VERSION);
+        writeAttribute(stream, Attributes.Name.MANIFEST_VERSION.toString(), version == null ? "1.0" : version.toString());
+        writeAttributes(stream, main);
+        writeLine(stream, "");
+        for (Map.Entry<String, Attributes> entry : new TreeMap<>(manifest.getEntries()).entrySet()) {
+            writeAttribute(stream, "Name", entry.getKey());
+            writeAttributes(stream, entry.getValue());
+            writeLine(stream, "");
+        }
+        return stream.toByteArray();
+    }
+    
+    private static void writeAttributes(ByteArrayOutputStream stream, Attributes attributes) {
+        SortedMap<String, String> sorted = new TreeMap<>();
+        attributes.forEach((name, value) -> sorted.put(name.toString(), String.valueOf(value)));
+        sorted.remove(Attributes.Name.MANIFEST_VERSION.toString());
+        sorted.forEach((name, value) -> writeAttribute(stream, name, value));
+    }
+    
+    private static void writeAttribute(ByteArrayOutputStream stream, String name, String value) {
+        byte[] bytes = (name + ": " + value).getBytes(StandardCharsets.UTF_8);
+        // Lines are limited to 72 bytes, continuations start with a space, never split inside a UTF-8 sequence
+        int start = 0;
+        int limit = 72;
+        while (bytes.length - start > limit) {
+            int end = start + limit;
+            while ((bytes[end] & 0xC0) == 0x80) end--;
+            stream.write(bytes, start, end - start);
+            stream.write('\r');
+            stream.write('\n');
+            stream.write(' ');
+            start = end;
+            limit = 71;
+        }
+        stream.write(bytes, start, bytes.length - start);
+        stream.write('\r');
+        stream.write('\n');
+    }
+    
+    private static void writeLine(ByteArrayOutputStream stream, String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        stream.write(bytes, 0, bytes.length);
+        stream.write('\r');
+        stream.write('\n');
+    }
+    
+    private static ZipEntry newEntry(String name) {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(CONSTANT_TIME);
+        return entry;
+    }
+    
+    private static String normalizePath(String path) {
+        String normalized = path.replace('\\', '/');
+        return normalized.startsWith("/") ? normalized.substring(1) : normalized;
+    }
+    
+    private static int entryRank(String name) {
+        // Keep the manifest at the front for JarInputStream
+        if (name.equals("META-INF/")) return 0;
+        if (name.equals(JarFile.MANIFEST_NAME)) return 1;
+        return 2;
+    }
+}
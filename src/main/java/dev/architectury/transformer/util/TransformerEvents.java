@@ -0,0 +1,81 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer.util;
+
+/**
+ * Java Flight Recorder events of the transformer phases. This is the Java 8 variant, which records nothing,
+ * the multi-release variant under {@code META-INF/versions/11} emits the events on Java 11 and newer.
+ */
+public class TransformerEvents {
+    /**
+     * A whole phase, e.g. reading the classpath or remapping, with the input or transformer it ran for.
+     */
+    public static Span phase(String phase, String subject) {
+        return Span.NONE;
+    }
+    
+    /**
+     * A single class edit of a transformer, the output size is set once the class is written.
+     */
+    public static Span classEdit(String transformer, String className, int inputSize) {
+        return Span.NONE;
+    }
+    
+    /**
+     * A class transformed by the runtime as it was loaded.
+     */
+    public static Span runtimeTransform(String className, int inputSize) {
+        return Span.NONE;
+    }
+    
+    /**
+     * A batch of classes redefined by the runtime.
+     */
+    public static Span redefine(String input, int classes) {
+        return Span.NONE;
+    }
+    
+    public static class Span implements AutoCloseable {
+        public static final Span NONE = new Span();
+        
+        protected Span() {
+        }
+        
+        public void setOutputSize(int outputSize) {
+        }
+        
+        /**
+         * Stops the clock of the event, to commit it later with more information.
+         */
+        public void end() {
+        }
+        
+        /**
+         * Commits the event, ending it if it is still running.
+         */
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -26,6 +26,7 @@ package dev.architectury.transformer;
 import dev.architectury.transformer.handler.TransformHandler;
 import dev.architectury.transformer.input.FileAccess;
 import dev.architectury.transformer.util.Logger;
+import dev.architectury.transformer.util.TransformerEvents;
 
 import java.io.IOException;
 import java.lang.instrument.ClassFileTransformer;
@@ -42,10 +43,16 @@ import static dev.architectury.transformer.Transform.formatDuration;
 public class ClassTransformerFileAccess implements ClassFileTransformer {
     private final TransformHandler handler;
     private final Function<String, TransformerRuntime.ToTransformData> dataFunction;
+    private final LoadedClassIndex loadedClasses;
     
     public ClassTransformerFileAccess(TransformHandler handler, Function<String, TransformerRuntime.ToTransformData> dataFunction) {
+        this(handler, dataFunction, new LoadedClassIndex());
+    }
+    
+    public ClassTransformerFileAccess(TransformHandler handler, Function<String, TransformerRuntime.ToTransformData> dataFunction, LoadedClassIndex loadedClasses) {
         this.handler = handler;
         this.dataFunction = dataFunction;
+        this.loadedClasses = loadedClasses;
     }
     
     @Override
@@ -54,15 +61,18 @@ public class ClassTransformerFileAccess implements ClassFileTransformer {
         AtomicReference<byte[]> classBytes = new AtomicReference<>(classfileBuffer);
         TransformerRuntime.ToTransformData data = dataFunction.apply(className + ".class");
         if (data != null) {
+            loadedClasses.track(className, loader, classBeingRedefined);
             List<Transformer> transformers = data.getTransformers();
             FileAccess originalSource = data.getOriginalSource();
             FileAccess debugOut = data.getDebugOut();
             
-            try {
+            try (TransformerEvents.Span span = TransformerEvents.runtimeTransform(className, classfileBuffer.length)) {
                 Transform.measureTime(() -> {
                     handler.handle(className + ".class", new Access(className, classBytes, originalSource), transformers);
                 }, duration -> {
-                    Logger.debug("Transformed " + className + " in " + formatDuration(duration));
+                    span.setOutputSize(classBytes.get().length);
+                    TransformerMetrics.INSTANCE.recordTransform(data.getName(), classfileBuffer.length, classBytes.get().length, duration.toNanos());
+                    Logger.debug(() -> "Transformed " + className + " in " + formatDuration(duration));
                 });
                 if (debugOut != null) {
                     debugOut.addFile(className + ".class", classBytes.get());
@@ -0,0 +1,150 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer;
+
+import dev.architectury.transformer.util.Logger;
+
+import java.lang.instrument.Instrumentation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Indexes the classes defined through {@link ClassTransformerFileAccess} by their internal name,
+ * so redefinition does not have to enumerate every loaded class.
+ */
+public class LoadedClassIndex {
+    private static final MethodHandle FIND_LOADED_CLASS = findLoadedClassHandle();
+    private final Map<String, List<Entry>> entries = new ConcurrentHashMap<>();
+    
+    /**
+     * Records that a class is being defined by the given class loader.
+     *
+     * @param className           the internal name of the class
+     * @param loader              the defining class loader
+     * @param classBeingRedefined the class object, if it is already known
+     */
+    public void track(String className, ClassLoader loader, Class<?> classBeingRedefined) {
+        if (loader == null) return;
+        List<Entry> list = entries.computeIfAbsent(className, $ -> new CopyOnWriteArrayList<>());
+        for (Entry entry : list) {
+            if (entry.loader.get() == loader) {
+                if (classBeingRedefined != null) {
+                    entry.clazz = new WeakReference<>(classBeingRedefined);
+                }
+                return;
+            }
+        }
+        list.add(new Entry(loader, classBeingRedefined));
+    }
+    
+    /**
+     * Resolves the loaded classes for the given internal names, classes that are not loaded are skipped.
+     * Only classes already defined by a tracked class loader are returned, this never loads a class.
+     *
+     * @param instrumentation the instrumentation to enumerate loaded classes with when {@code findLoadedClass} is not accessible
+     * @param classNames      the internal names of the classes
+     * @return the loaded classes, keyed by internal name
+     */
+    public Map<String, List<Class<?>>> resolve(Instrumentation instrumentation, Collection<String> classNames) {
+        Map<String, List<Class<?>>> resolved = new HashMap<>();
+        Map<String, List<Entry>> pending = new HashMap<>();
+        for (String className : classNames) {
+            List<Entry> list = entries.get(className);
+            if (list == null) continue;
+            String binaryName = className.replace('/', '.');
+            for (Entry entry : list) {
+                ClassLoader loader = entry.loader.get();
+                if (loader == null) {
+                    list.remove(entry);
+                    continue;
+                }
+                Class<?> clazz = entry.clazz == null ? null : entry.clazz.get();
+                if (clazz == null && FIND_LOADED_CLASS != null) {
+                    clazz = findLoadedClass(loader, binaryName);
+                    if (clazz == null) continue;
+                    entry.clazz = new WeakReference<>(clazz);
+                }
+                if (clazz == null) {
+                    pending.computeIfAbsent(binaryName, $ -> new ArrayList<>()).add(entry);
+                } else {
+                    resolved.computeIfAbsent(className, $ -> new ArrayList<>()).add(clazz);
+                }
+            }
+        }
+        if (!pending.isEmpty()) {
+            // A single pass over the loaded classes, the class objects are remembered for the next redefinition
+            for (Class<?> clazz : instrumentation.getAllLoadedClasses()) {
+                List<Entry> list = pending.get(clazz.getName());
+                if (list == null) continue;
+                ClassLoader loader = clazz.getClassLoader();
+                for (Entry entry : list) {
+                    if (entry.loader.get() == loader) {
+                        entry.clazz = new WeakReference<>(clazz);
+                        resolved.computeIfAbsent(clazz.getName().replace('.', '/'), $ -> new ArrayList<>()).add(clazz);
+                    }
+                }
+            }
+        }
+        return resolved;
+    }
+    
+    /**
+     * Looks up a class the loader has already defined, without loading it.
+     */
+    private static Class<?> findLoadedClass(ClassLoader loader, String binaryName) {
+        try {
+            return (Class<?>) FIND_LOADED_CLASS.invokeExact(loader, binaryName);
+        } catch (Throwable throwable) {
+            return null;
+        }
+    }
+    
+    private static MethodHandle findLoadedClassHandle() {
+        try {
+            Method method = ClassLoader.class.getDeclaredMethod("findLoadedClass", String.class);
+            method.setAccessible(true);
+            return MethodHandles.lookup().unreflect(method).asType(MethodType.methodType(Class.class, ClassLoader.class, String.class));
+        } catch (Throwable throwable) {
+            // Java 9+ does not open java.lang, fall back to enumerating the loaded classes
+            Logger.debug("Unable to access ClassLoader#findLoadedClass, falling back to Instrumentation#getAllLoadedClasses");
+            return null;
+        }
+    }
+    
+    private static class Entry {
+        private final WeakReference<ClassLoader> loader;
+        private volatile WeakReference<Class<?>> clazz;
+        
+        private Entry(ClassLoader loader, Class<?> clazz) {
+            this.loader = new WeakReference<>(loader);
+            this.clazz = clazz == null ? null : new WeakReference<>(clazz);
+        }
+    }
+}
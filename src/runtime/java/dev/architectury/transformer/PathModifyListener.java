@@ -27,43 +27,179 @@ import dev.architectury.transformer.util.Logger;
 
 import java.io.IOException;
 import java.nio.file.*;
-import java.util.Objects;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
+/**
+ * Watches multiple files and directories with a single {@link WatchService}, notifying the listener with
+ * every path that has settled down since the last notification.
+ */
 public class PathModifyListener extends Thread {
-    private final Path path;
-    private final Consumer<Path> listener;
+    private static final long POLL_INTERVAL = 100;
+    private static final long QUIET_PERIOD = 300;
+    private final WatchService watchService;
+    private final Consumer<List<Path>> listener;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    private final Map<Path, Path> directoryRoots = new HashMap<>();
+    private final Map<Path, Set<Path>> fileEntries = new HashMap<>();
+    private final Set<Path> roots = new HashSet<>();
+    private final Map<Path, Pending> pending = new LinkedHashMap<>();
     
-    public PathModifyListener(Path path, Consumer<Path> listener) {
-        this.path = path;
+    public PathModifyListener(Consumer<List<Path>> listener) throws IOException {
+        super("Architectury Transformer File Watcher");
+        this.watchService = FileSystems.getDefault().newWatchService();
         this.listener = listener;
         setDaemon(true);
-        start();
+    }
+    
+    public synchronized void watch(Path path) throws IOException {
+        path = path.toAbsolutePath().normalize();
+        Logger.info("Listening at " + path);
+        if (Files.isDirectory(path)) {
+            registerRecursively(path, path);
+            roots.add(path);
+        }
+        // The parent is watched as well, so deleted paths are noticed and directories are registered again once recreated
+        Path parent = path.getParent();
+        if (parent == null) return;
+        if (!fileEntries.containsKey(parent)) {
+            directories.put(parent.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE), parent);
+        }
+        fileEntries.computeIfAbsent(parent, $ -> new HashSet<>()).add(path);
+    }
+    
+    private void registerRecursively(Path root, Path start) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                directories.put(dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE), dir);
+                directoryRoots.put(dir, root);
+                return FileVisitResult.CONTINUE;
+            }
+        });
     }
     
     @Override
     public void run() {
         try {
-            Logger.info("Listening at " + path);
-            WatchService watcher = path.getFileSystem().newWatchService();
-            try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
-                WatchKey watchKey = path.getParent().register(watchService, StandardWatchEventKinds.ENTRY_MODIFY);
-                while (true) {
-                    WatchKey wk = watchService.take();
-                    for (WatchEvent<?> event : wk.pollEvents()) {
-                        Path changed = (Path) event.context();
-                        if (Objects.equals(changed.toString(), path.getFileName().toString())) {
-                            listener.accept(path);
-                            break;
-                        }
+            while (true) {
+                WatchKey key = pending.isEmpty() ? watchService.take() : watchService.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                List<Path> settled;
+                synchronized (this) {
+                    while (key != null) {
+                        collectEvents(key);
+                        key = watchService.poll();
                     }
                     
-                    wk.reset();
-                    Thread.sleep(1000);
+                    settled = collectSettled();
+                }
+                // Outside the lock, a slow reload must not block watching other paths
+                if (!settled.isEmpty()) {
+                    try {
+                        listener.accept(settled);
+                    } catch (Exception exception) {
+                        exception.printStackTrace();
+                    }
                 }
             }
-        } catch (IOException | InterruptedException e) {
-            e.printStackTrace();
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+        }
+    }
+    
+    private void collectEvents(WatchKey key) {
+        Path dir = directories.get(key);
+        if (dir != null) {
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    fileEntries.getOrDefault(dir, Collections.emptySet()).forEach(path -> markModified(path, path));
+                    if (directoryRoots.containsKey(dir)) markModified(directoryRoots.get(dir), dir);
+                    continue;
+                }
+                Path changed = dir.resolve((Path) event.context());
+                Path root = directoryRoots.get(dir);
+                if (root != null) {
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+                        register(root, changed);
+                    }
+                    markModified(root, changed);
+                }
+                if (fileEntries.getOrDefault(dir, Collections.emptySet()).contains(changed)) {
+                    if (roots.contains(changed) && event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+                        register(changed, changed);
+                    }
+                    markModified(changed, changed);
+                }
+            }
+        }
+        
+        if (!key.reset()) {
+            directories.remove(key);
+            directoryRoots.remove(dir);
         }
     }
-}
\ No newline at end of file
+    
+    private void register(Path root, Path start) {
+        try {
+            registerRecursively(root, start);
+        } catch (IOException exception) {
+            exception.printStackTrace();
+        }
+    }
+    
+    /**
+     * Marks the watched path as modified, remembering the changed path so only it is fingerprinted while settling.
+     */
+    private void markModified(Path path, Path changed) {
+        Pending state = pending.computeIfAbsent(path, $ -> new Pending());
+        state.fingerprints.put(changed, fingerprint(changed));
+        state.lastChange = System.nanoTime();
+    }
+    
+    private List<Path> collectSettled() {
+        List<Path> settled = new ArrayList<>();
+        long now = System.nanoTime();
+        Iterator<Map.Entry<Path, Pending>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, Pending> entry = iterator.next();
+            Pending state = entry.getValue();
+            if (TimeUnit.NANOSECONDS.toMillis(now - state.lastChange) < QUIET_PERIOD) continue;
+            // The files might still be written without us getting notified, wait until they stop changing
+            boolean changed = false;
+            for (Map.Entry<Path, Long> fingerprint : state.fingerprints.entrySet()) {
+                long current = fingerprint(fingerprint.getKey());
+                if (current != fingerprint.getValue()) {
+                    fingerprint.setValue(current);
+                    changed = true;
+                }
+            }
+            if (changed) {
+                state.lastChange = now;
+            } else {
+                if (Files.exists(entry.getKey())) {
+                    settled.add(entry.getKey());
+                } else {
+                    // Deleted, the parent is still watched and marks the path modified again once it is recreated
+                    Logger.debug("Watched path " + entry.getKey() + " was deleted");
+                }
+                iterator.remove();
+            }
+        }
+        return settled;
+    }
+    
+    private static long fingerprint(Path path) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return attributes.lastModifiedTime().toMillis() * 31 + attributes.size();
+        } catch (IOException exception) {
+            return -1;
+        }
+    }
+    
+    private static class Pending {
+        private final Map<Path, Long> fingerprints = new HashMap<>();
+        private long lastChange = System.nanoTime();
+    }
+}
@@ -28,8 +28,10 @@ import dev.architectury.transformer.input.FileAccess;
 import dev.architectury.transformer.util.HashUtils;
 
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.UnaryOperator;
 
 public class RuntimeReloadFileAccess extends AbstractFileAccess {
@@ -37,6 +39,7 @@ public class RuntimeReloadFileAccess extends AbstractFileAccess {
     private final Map<String, String> thisClassRedefineCache;
     private final Map<String, byte[]> redefine;
     private final FileAccess out;
+    private final Set<String> writtenClasses = new HashSet<>();
     
     public RuntimeReloadFileAccess(Map<String, String> lastClassRedefineCache, Map<String, String> thisClassRedefineCache, Map<String, byte[]> redefine, FileAccess out) {
         super(out);
@@ -52,13 +55,16 @@ public class RuntimeReloadFileAccess extends AbstractFileAccess {
         if (out.addFile(s, bytes)) {
             if (path.endsWith(".class")) {
                 s = s.substring(0, s.length() - 6);
+                writtenClasses.add(s);
                 String sha256 = HashUtils.sha256(bytes);
                 if (!Objects.equals(lastClassRedefineCache.get(s), sha256)) {
                     thisClassRedefineCache.put(s, sha256);
                     redefine.put(s, bytes);
-                } else if (thisClassRedefineCache.containsKey(s)) {
-                    thisClassRedefineCache.remove(s);
-                    redefine.remove(s);
+                } else {
+                    if (thisClassRedefineCache.containsKey(s)) {
+                        thisClassRedefineCache.remove(s);
+                        redefine.remove(s);
+                    }
                 }
             }
             
@@ -74,12 +80,15 @@ public class RuntimeReloadFileAccess extends AbstractFileAccess {
         if (s.endsWith(".class") && bytes != null) {
             String sha256 = HashUtils.sha256(bytes);
             String className = s.substring(0, s.length() - 6);
+            writtenClasses.add(className);
             if (!Objects.equals(lastClassRedefineCache.get(className), sha256)) {
                 thisClassRedefineCache.put(className, sha256);
                 redefine.put(className, bytes);
-            } else if (thisClassRedefineCache.containsKey(className)) {
-                thisClassRedefineCache.remove(className);
-                redefine.remove(className);
+            } else {
+                if (thisClassRedefineCache.containsKey(className)) {
+                    thisClassRedefineCache.remove(className);
+                    redefine.remove(className);
+                }
             }
         }
         return bytes;
@@ -92,12 +101,15 @@ public class RuntimeReloadFileAccess extends AbstractFileAccess {
         if (s.endsWith(".class") && bytes != null) {
             String sha256 = HashUtils.sha256(bytes);
             String className = s.substring(0, s.length() - 6);
+            writtenClasses.add(className);
             if (!Objects.equals(lastClassRedefineCache.get(className), sha256)) {
                 thisClassRedefineCache.put(className, sha256);
                 redefine.put(className, bytes);
-            } else if (thisClassRedefineCache.containsKey(className)) {
-                thisClassRedefineCache.remove(className);
-                redefine.remove(className);
+            } else {
+                if (thisClassRedefineCache.containsKey(className)) {
+                    thisClassRedefineCache.remove(className);
+                    redefine.remove(className);
+                }
             }
         }
         return bytes;
@@ -109,6 +121,7 @@ public class RuntimeReloadFileAccess extends AbstractFileAccess {
         if (out.deleteFile(s)) {
             if (path.endsWith(".class")) {
                 s = s.substring(0, s.length() - 6);
+                writtenClasses.remove(s);
                 thisClassRedefineCache.remove(s);
                 redefine.remove(s);
             }
@@ -118,6 +131,20 @@ public class RuntimeReloadFileAccess extends AbstractFileAccess {
         return false;
     }
     
+    /**
+     * Returns the number of classes that did not need to be redefined since they are unchanged, counting classes
+     * written more than once a single time.
+     */
+    public int getUnchangedClasses() {
+        int unchanged = 0;
+        for (String className : writtenClasses) {
+            if (!redefine.containsKey(className)) {
+                unchanged++;
+            }
+        }
+        return unchanged;
+    }
+    
     @Override
     public String toString() {
         return out.toString();
@@ -0,0 +1,196 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer;
+
+import dev.architectury.transformer.util.Logger;
+import dev.architectury.transformer.util.MemoryBudget;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+public class TransformerMetrics implements TransformerMetricsMXBean {
+    public static final TransformerMetrics INSTANCE = new TransformerMetrics();
+    private final Map<String, EntryMetrics> entries = new ConcurrentHashMap<>();
+    private final Histogram transformLatency = new Histogram();
+    private final Histogram remapLatency = new Histogram();
+    private final Histogram redefinitionLatency = new Histogram();
+    private volatile LongSupplier lockWaitTime = () -> 0;
+    
+    private TransformerMetrics() {}
+    
+    public void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("dev.architectury.transformer:type=Runtime"));
+        } catch (Exception exception) {
+            Logger.debug("Failed to register transformer metrics MBean: " + exception);
+        }
+    }
+    
+    public void setLockWaitTime(LongSupplier lockWaitTime) {
+        this.lockWaitTime = lockWaitTime;
+    }
+    
+    public void recordTransform(String entry, int bytesIn, int bytesOut, long nanos) {
+        EntryMetrics metrics = entry(entry);
+        metrics.classesTransformed.increment();
+        metrics.bytesIn.add(bytesIn);
+        metrics.bytesOut.add(bytesOut);
+        transformLatency.record(nanos);
+    }
+    
+    public void recordCacheHits(String entry, int hits) {
+        entry(entry).cacheHits.add(hits);
+    }
+    
+    public void recordRemap(long nanos) {
+        remapLatency.record(nanos);
+    }
+    
+    public void recordRedefinition(long nanos) {
+        redefinitionLatency.record(nanos);
+    }
+    
+    private EntryMetrics entry(String entry) {
+        return entries.computeIfAbsent(entry == null ? "unknown" : entry, $ -> new EntryMetrics());
+    }
+    
+    @Override
+    public Map<String, Long> getClassesTransformed() {
+        return collect(metrics -> metrics.classesTransformed);
+    }
+    
+    @Override
+    public Map<String, Long> getBytesIn() {
+        return collect(metrics -> metrics.bytesIn);
+    }
+    
+    @Override
+    public Map<String, Long> getBytesOut() {
+        return collect(metrics -> metrics.bytesOut);
+    }
+    
+    @Override
+    public Map<String, Long> getCacheHits() {
+        return collect(metrics -> metrics.cacheHits);
+    }
+    
+    @Override
+    public Map<String, Long> getTransformLatency() {
+        return transformLatency.snapshot();
+    }
+    
+    @Override
+    public Map<String, Long> getRemapLatency() {
+        return remapLatency.snapshot();
+    }
+    
+    @Override
+    public Map<String, Long> getRedefinitionLatency() {
+        return redefinitionLatency.snapshot();
+    }
+    
+    @Override
+    public long getLockWaitTimeNanos() {
+        return lockWaitTime.getAsLong();
+    }
+    
+    @Override
+    public Map<String, Long> getMemoryUsage() {
+        return MemoryBudget.INSTANCE.getUsage();
+    }
+    
+    @Override
+    public void reset() {
+        entries.clear();
+        transformLatency.reset();
+        remapLatency.reset();
+        redefinitionLatency.reset();
+    }
+    
+    private Map<String, Long> collect(Function<EntryMetrics, LongAdder> getter) {
+        Map<String, Long> map = new TreeMap<>();
+        entries.forEach((entry, metrics) -> map.put(entry, getter.apply(metrics).sum()));
+        return map;
+    }
+    
+    private static class EntryMetrics {
+        private final LongAdder classesTransformed = new LongAdder();
+        private final LongAdder bytesIn = new LongAdder();
+        private final LongAdder bytesOut = new LongAdder();
+        private final LongAdder cacheHits = new LongAdder();
+    }
+    
+    /**
+     * Latency histogram with power of two microsecond buckets.
+     */
+    private static class Histogram {
+        private static final int BUCKETS = 32;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+        
+        private void record(long nanos) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+            buckets.incrementAndGet(bucket);
+            count.increment();
+            total.add(nanos);
+            max.accumulate(nanos);
+        }
+        
+        private void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+            count.reset();
+            total.reset();
+            max.reset();
+        }
+        
+        private Map<String, Long> snapshot() {
+            Map<String, Long> map = new LinkedHashMap<>();
+            map.put("count", count.sum());
+            map.put("totalNanos", total.sum());
+            map.put("maxNanos", max.get());
+            for (int i = 0; i < BUCKETS; i++) {
+                long value = buckets.get(i);
+                if (value != 0) {
+                    map.put("<" + (1L << i) + "us", value);
+                }
+            }
+            return map;
+        }
+    }
+}
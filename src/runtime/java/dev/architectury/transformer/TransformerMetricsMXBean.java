@@ -0,0 +1,54 @@
+/*
+ * This file is licensed under the MIT License, part of architectury-transformer.
+ * Copyright (c) 2020, 2021, 2022 architectury
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.architectury.transformer;
+
+import java.util.Map;
+
+/**
+ * Runtime transformer metrics, exposed as {@code dev.architectury.transformer:type=Runtime}.
+ */
+public interface TransformerMetricsMXBean {
+    Map<String, Long> getClassesTransformed();
+    
+    Map<String, Long> getBytesIn();
+    
+    Map<String, Long> getBytesOut();
+    
+    Map<String, Long> getCacheHits();
+    
+    Map<String, Long> getTransformLatency();
+    
+    Map<String, Long> getRemapLatency();
+    
+    Map<String, Long> getRedefinitionLatency();
+    
+    long getLockWaitTimeNanos();
+    
+    /**
+     * The bytes held by the in-memory stores, see {@link dev.architectury.transformer.util.MemoryBudget}.
+     */
+    Map<String, Long> getMemoryUsage();
+    
+    void reset();
+}
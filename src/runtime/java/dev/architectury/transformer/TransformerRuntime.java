@@ -23,8 +23,10 @@
 
 package dev.architectury.transformer;
 
+import dev.architectury.tinyremapper.IMappingProvider;
 import dev.architectury.transformer.agent.TransformerAgent;
 import dev.architectury.transformer.handler.SimpleTransformerHandler;
+import dev.architectury.transformer.handler.ThreadLockedTransformHandler;
 import dev.architectury.transformer.handler.TinyRemapperPreparedTransformerHandler;
 import dev.architectury.transformer.handler.TransformHandler;
 import dev.architectury.transformer.input.DirectoryFileAccess;
@@ -38,6 +40,7 @@ import dev.architectury.transformer.transformers.base.edit.TransformerContext;
 import dev.architectury.transformer.transformers.classpath.ReadClasspathProvider;
 import dev.architectury.transformer.transformers.properties.TransformersReader;
 import dev.architectury.transformer.util.Logger;
+import dev.architectury.transformer.util.TransformerEvents;
 import dev.architectury.transformer.util.TransformerPair;
 
 import java.io.*;
@@ -54,7 +57,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.jar.JarFile;
@@ -66,6 +69,8 @@ public class TransformerRuntime {
     public static final String PROPERTIES = "architectury.properties";
     public static final Set<File> TRANSFORM_FILES = new HashSet<>();
     public static final Map<String, ToTransformData> CLASSES_TO_TRANSFORM = new HashMap<>();
+    public static final LoadedClassIndex LOADED_CLASSES = new LoadedClassIndex();
+    private static final Map<Path, HotReloadEntry> reloadEntries = new LinkedHashMap<>();
     private static ReadClasspathProvider classpathProvider;
     
     private static boolean isDebugOutputEnabled() {
@@ -76,11 +81,17 @@ public class TransformerRuntime {
         private final List<Transformer> transformers;
         private final FileAccess originalSource;
         private final FileAccess debugOut;
+        private final String name;
         
         public ToTransformData(List<Transformer> transformers, FileAccess originalSource, FileAccess debugOut) {
+            this(transformers, originalSource, debugOut, null);
+        }
+        
+        public ToTransformData(List<Transformer> transformers, FileAccess originalSource, FileAccess debugOut, String name) {
             this.transformers = transformers;
             this.originalSource = originalSource;
             this.debugOut = debugOut;
+            this.name = name;
         }
         
         public List<Transformer> getTransformers() {
@@ -94,12 +105,17 @@ public class TransformerRuntime {
         public FileAccess getDebugOut() {
             return debugOut;
         }
+        
+        public String getName() {
+            return name;
+        }
     }
     
     public static void main(String[] args) throws Throwable {
         Logger.info("Architectury Runtime " + TransformerRuntime.class.getPackage().getImplementationVersion());
         List<String> argsList = new ArrayList<>(Arrays.asList(args));
         applyProperties();
+        TransformerMetrics.INSTANCE.register();
         
         // We start our journey of achieving hell
         Path configPath = Paths.get(System.getProperty(RUNTIME_TRANSFORM_CONFIG));
@@ -124,7 +140,7 @@ public class TransformerRuntime {
                     MemoryFileAccess remember = outputInterface.remember();
                     outputInterface.handle(path -> {
                         String key = Transform.trimSlashes(path);
-                        CLASSES_TO_TRANSFORM.put(key, new ToTransformData(entry.getTransformers(), remember, debugOut));
+                        CLASSES_TO_TRANSFORM.put(key, new ToTransformData(entry.getTransformers(), remember, debugOut, entry.getPath().toString()));
                     });
                 }
             } else {
@@ -132,13 +148,13 @@ public class TransformerRuntime {
                     MemoryFileAccess remember = outputInterface.remember();
                     outputInterface.handle(path -> {
                         String key = Transform.trimSlashes(path);
-                        CLASSES_TO_TRANSFORM.put(key, new ToTransformData(entry.getTransformers(), remember, debugOut));
+                        CLASSES_TO_TRANSFORM.put(key, new ToTransformData(entry.getTransformers(), remember, debugOut, entry.getPath().toString()));
                     });
                 }
             }
         }
         List<Path> tmpJars = new ArrayList<>();
-        classpathProvider = ReadClasspathProvider.of(ClasspathProvider.fromProperties().filter(path -> {
+        classpathProvider = ReadClasspathProvider.snapshotted(ClasspathProvider.fromProperties().filter(path -> {
             File file = path.toFile().getAbsoluteFile();
             for (PathWithTransformersEntry path1 : toTransform) {
                 if (Objects.equals(path1.toFile().getAbsoluteFile(), file)) {
@@ -148,65 +164,38 @@ public class TransformerRuntime {
             return true;
         }));
         doInstrumentationStuff();
-        for (PathWithTransformersEntry entry : toTransform) {
-            Map<String, String> classRedefineCache = new HashMap<>();
-            DirectoryFileAccess debugOut = debugOuts.get(entry.getPath());
-            Path tmpJar = Files.createTempFile(null, ".jar");
-            tmpJars.add(tmpJar);
-            Files.deleteIfExists(tmpJar);
-            try (OpenedFileAccess outputInterface = OpenedFileAccess.ofJar(tmpJar)) {
-                try (OpenedFileAccess og = OpenedFileAccess.ofJar(entry.getPath())) {
-                    og.copyTo(outputInterface);
-                }
-                Logger.debug("Transforming " + entry.getTransformers().size() + " transformer(s) from " + entry.getPath().toString() + " to " + tmpJar + ": ");
-                for (Transformer transformer : entry.getTransformers()) {
-                    Logger.debug(" - " + transformer.toString());
-                }
-                Transform.runTransformers(new SimpleTransformerContext(a -> {
-                    argsList.addAll(Arrays.asList(a));
-                    Logger.debug("Appended Launch Argument: " + Arrays.toString(a));
-                }, false, true, true), classpathProvider, entry.getPath().toString(), new RuntimeFileAccess(classRedefineCache, outputInterface, debugOut), entry.getTransformers());
+        // Transform the entries concurrently, but keep the order of the classpath and launch arguments stable
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(toTransform.size(), Runtime.getRuntime().availableProcessors())));
+        List<Future<TransformedEntry>> futures = new ArrayList<>();
+        try {
+            for (PathWithTransformersEntry entry : toTransform) {
+                DirectoryFileAccess debugOut = debugOuts.get(entry.getPath());
+                futures.add(executor.submit(() -> transformEntry(entry, debugOut)));
             }
-            
-            tmpJar.toFile().deleteOnExit();
-            populateAddUrl().accept(tmpJar.toUri().toURL());
-            
-            new PathModifyListener(entry.getPath(), path -> {
+            for (Future<TransformedEntry> future : futures) {
+                TransformedEntry transformed;
                 try {
-                    try (OpenedFileAccess outputInterface = OpenedFileAccess.ofJar(tmpJar)) {
-                        Thread.sleep(4000);
-                        if (!System.getProperty("os.name").startsWith("Windows")) {
-                            Files.deleteIfExists(tmpJar);
-                        }
-                        try (OpenedFileAccess og = OpenedFileAccess.ofJar(entry.getPath())) {
-                            og.copyTo(outputInterface);
-                        }
-                        Logger.info("Detected File Modification at " + path.getFileName().toString());
-                        Map<String, byte[]> redefine = new HashMap<>();
-                        Logger.debug("Transforming " + entry.getTransformers().size() + " transformer(s) from " + entry.getPath().toString() + " to " + tmpJar + ": ");
-                        for (Transformer transformer : entry.getTransformers()) {
-                            Logger.debug(" - " + transformer.toString());
-                        }
-                        Map<String, String> thisClassRedefineCache = new HashMap<>(classRedefineCache);
-                        Transform.runTransformers(new SimpleTransformerContext(
-                                $ -> {}, true, false, false
-                        ), classpathProvider, entry.getPath().toString(), new RuntimeReloadFileAccess(classRedefineCache, thisClassRedefineCache, redefine, outputInterface), entry.getTransformers());
-                        classRedefineCache.putAll(thisClassRedefineCache);
-                        if (TransformerAgent.getInstrumentation().isRedefineClassesSupported()) {
-                            if (debugOut != null) {
-                                for (Map.Entry<String, byte[]> redefineEntry : redefine.entrySet()) {
-                                    debugOut.modifyFile(redefineEntry.getKey() + ".class", redefineEntry.getValue());
-                                }
-                            }
-                            redefineClasses(entry.getPath().toString(), redefine);
-                        }
-                    }
-                } catch (Exception exception) {
-                    exception.printStackTrace();
+                    transformed = future.get();
+                } catch (ExecutionException exception) {
+                    throw exception.getCause();
                 }
-            });
+                argsList.addAll(transformed.arguments);
+                tmpJars.add(transformed.tmpJar);
+                transformed.tmpJar.toFile().deleteOnExit();
+                populateAddUrl().accept(transformed.tmpJar.toUri().toURL());
+                
+                reloadEntries.put(transformed.entry.getPath().toAbsolutePath().normalize(), new HotReloadEntry(transformed.entry, transformed.tmpJar, transformed.classRedefineCache, transformed.debugOut));
+            }
+        } finally {
+            executor.shutdownNow();
         }
         
+        PathModifyListener listener = new PathModifyListener(TransformerRuntime::reload);
+        for (Path path : reloadEntries.keySet()) {
+            listener.watch(path);
+        }
+        listener.start();
+        
         List<String> cp = new ArrayList<>(Arrays.asList(System.getProperty("java.class.path", "").split(File.pathSeparator)));
         for (Path tmpJar : tmpJars) {
             cp.add(tmpJar.toAbsolutePath().toString());
@@ -232,26 +221,73 @@ public class TransformerRuntime {
                 .collect(Collectors.toList());
     }
     
+    private static TransformedEntry transformEntry(PathWithTransformersEntry entry, DirectoryFileAccess debugOut) throws Exception {
+        Map<String, String> classRedefineCache = new HashMap<>();
+        List<String> arguments = new ArrayList<>();
+        Path tmpJar = Files.createTempFile(null, ".jar");
+        Files.deleteIfExists(tmpJar);
+        try (OpenedFileAccess outputInterface = OpenedFileAccess.ofJar(tmpJar)) {
+            try (OpenedFileAccess og = openInput(entry.getPath())) {
+                og.copyTo(outputInterface);
+            }
+            Logger.debug("Transforming " + entry.getTransformers().size() + " transformer(s) from " + entry.getPath().toString() + " to " + tmpJar + ": ");
+            for (Transformer transformer : entry.getTransformers()) {
+                Logger.debug(" - " + transformer.toString());
+            }
+            Transform.runTransformers(new SimpleTransformerContext(a -> {
+                arguments.addAll(Arrays.asList(a));
+                Logger.debug("Appended Launch Argument: " + Arrays.toString(a));
+            }, false, true, true), classpathProvider, entry.getPath().toString(), new RuntimeFileAccess(classRedefineCache, outputInterface, debugOut), entry.getTransformers());
+        }
+        return new TransformedEntry(entry, tmpJar, classRedefineCache, debugOut, arguments);
+    }
+    
+    private static void reload(List<Path> paths) {
+        Map<String, byte[]> redefine = new HashMap<>();
+        List<String> inputs = new ArrayList<>();
+        for (Path path : paths) {
+            HotReloadEntry reloadEntry = reloadEntries.get(path);
+            if (reloadEntry == null) continue;
+            try {
+                redefine.putAll(reloadEntry.reload());
+                inputs.add(path.toString());
+            } catch (Exception exception) {
+                exception.printStackTrace();
+            }
+        }
+        if (!redefine.isEmpty() && TransformerAgent.getInstrumentation().isRedefineClassesSupported()) {
+            try {
+                // Redefine everything at once, so we only need to reach a safepoint once
+                redefineClasses(String.join(", ", inputs), redefine);
+            } catch (Exception exception) {
+                exception.printStackTrace();
+            }
+        }
+    }
+    
+    private static OpenedFileAccess openInput(Path path) {
+        return Files.isDirectory(path) ? OpenedFileAccess.ofDirectory(path) : OpenedFileAccess.ofJar(path);
+    }
+    
     private static void redefineClasses(String input, Map<String, byte[]> redefine) throws Exception {
-        Class<?>[] allLoadedClasses = TransformerAgent.getInstrumentation().getAllLoadedClasses();
         List<ClassDefinition> definitions = new ArrayList<>();
-        redefine.forEach((s, bytes) -> {
-            String name = s.replace('/', '.');
-            Iterator<Class<?>> iterator = Arrays.stream(allLoadedClasses)
-                    .filter(a -> a.getClassLoader() != ClassLoader.getSystemClassLoader())
-                    .filter(a -> Objects.equals(a.getName(), name))
-                    .iterator();
-            while (iterator.hasNext()) {
-                Class<?> a = iterator.next();
+        LOADED_CLASSES.resolve(TransformerAgent.getInstrumentation(), redefine.keySet()).forEach((s, classes) -> {
+            byte[] bytes = redefine.get(s);
+            for (Class<?> a : classes) {
                 if (a.getClassLoader() == ClassLoader.getSystemClassLoader()) continue;
-                Logger.debug("Redefining " + name);
+                Logger.debug(() -> "Redefining " + a.getName());
                 definitions.add(new ClassDefinition(a, bytes));
             }
         });
         if (!definitions.isEmpty()) {
-            Transform.logTime(() -> {
-                TransformerAgent.getInstrumentation().redefineClasses(definitions.toArray(new ClassDefinition[0]));
-            }, "Redefined " + definitions.size() + " class(es) from " + input);
+            Transform.measureTime(() -> {
+                try (TransformerEvents.Span ignored = TransformerEvents.redefine(input, definitions.size())) {
+                    TransformerAgent.getInstrumentation().redefineClasses(definitions.toArray(new ClassDefinition[0]));
+                }
+            }, duration -> {
+                TransformerMetrics.INSTANCE.recordRedefinition(duration.toNanos());
+                Logger.info("Redefined " + definitions.size() + " class(es) from " + input + " in " + Transform.formatDuration(duration));
+            });
         }
     }
     
@@ -273,15 +309,42 @@ public class TransformerRuntime {
         try {
             TransformerContext context = new SimpleTransformerContext(args -> {}, false, true, false);
             if (prepare) {
-                handler = new TinyRemapperPreparedTransformerHandler(classpathProvider, context, false).asThreadLocked();
+                handler = new TinyRemapperPreparedTransformerHandler(classpathProvider, context, false) {
+                    @Override
+                    protected void remapTR(Set<IMappingProvider> mappingProviders, String input, FileAccess output) throws Exception {
+                        Transform.measureTime(() -> super.remapTR(mappingProviders, input, output),
+                                duration -> TransformerMetrics.INSTANCE.recordRemap(duration.toNanos()));
+                    }
+                    
+                    @Override
+                    protected boolean isConcurrent() {
+                        // Classes are transformed one by one as they load, too little work to hand to other threads
+                        return false;
+                    }
+                }.asThreadLocked();
             } else {
-                handler = new SimpleTransformerHandler(classpathProvider, context, false).asThreadLocked();
+                handler = new SimpleTransformerHandler(classpathProvider, context, false) {
+                    @Override
+                    protected void remapTR(Set<IMappingProvider> mappingProviders, String input, FileAccess output) throws Exception {
+                        Transform.measureTime(() -> super.remapTR(mappingProviders, input, output),
+                                duration -> TransformerMetrics.INSTANCE.recordRemap(duration.toNanos()));
+                    }
+                    
+                    @Override
+                    protected boolean isConcurrent() {
+                        // Classes are transformed one by one as they load, too little work to hand to other threads
+                        return false;
+                    }
+                }.asThreadLocked();
+            }
+            if (handler instanceof ThreadLockedTransformHandler) {
+                TransformerMetrics.INSTANCE.setLockWaitTime(((ThreadLockedTransformHandler) handler)::getLockWaitTime);
             }
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
         Instrumentation instrumentation = TransformerAgent.getInstrumentation();
-        instrumentation.addTransformer(new ClassTransformerFileAccess(handler, CLASSES_TO_TRANSFORM::get), instrumentation.isRedefineClassesSupported());
+        instrumentation.addTransformer(new ClassTransformerFileAccess(handler, CLASSES_TO_TRANSFORM::get, LOADED_CLASSES), instrumentation.isRedefineClassesSupported());
     }
     
     private static Consumer<URL> populateAddUrl() {
@@ -307,6 +370,66 @@ public class TransformerRuntime {
         };
     }
     
+    private static class TransformedEntry {
+        private final PathWithTransformersEntry entry;
+        private final Path tmpJar;
+        private final Map<String, String> classRedefineCache;
+        private final DirectoryFileAccess debugOut;
+        private final List<String> arguments;
+        
+        public TransformedEntry(PathWithTransformersEntry entry, Path tmpJar, Map<String, String> classRedefineCache, DirectoryFileAccess debugOut, List<String> arguments) {
+            this.entry = entry;
+            this.tmpJar = tmpJar;
+            this.classRedefineCache = classRedefineCache;
+            this.debugOut = debugOut;
+            this.arguments = arguments;
+        }
+    }
+    
+    private static class HotReloadEntry {
+        private final PathWithTransformersEntry entry;
+        private final Path tmpJar;
+        private final Map<String, String> classRedefineCache;
+        private final DirectoryFileAccess debugOut;
+        
+        public HotReloadEntry(PathWithTransformersEntry entry, Path tmpJar, Map<String, String> classRedefineCache, DirectoryFileAccess debugOut) {
+            this.entry = entry;
+            this.tmpJar = tmpJar;
+            this.classRedefineCache = classRedefineCache;
+            this.debugOut = debugOut;
+        }
+        
+        public Map<String, byte[]> reload() throws Exception {
+            Map<String, byte[]> redefine = new HashMap<>();
+            try (OpenedFileAccess outputInterface = OpenedFileAccess.ofJar(tmpJar)) {
+                if (!System.getProperty("os.name").startsWith("Windows")) {
+                    Files.deleteIfExists(tmpJar);
+                }
+                try (OpenedFileAccess og = openInput(entry.getPath())) {
+                    og.copyTo(outputInterface);
+                }
+                Logger.info("Detected File Modification at " + entry.getPath().getFileName().toString());
+                Logger.debug("Transforming " + entry.getTransformers().size() + " transformer(s) from " + entry.getPath().toString() + " to " + tmpJar + ": ");
+                for (Transformer transformer : entry.getTransformers()) {
+                    Logger.debug(" - " + transformer.toString());
+                }
+                Map<String, String> thisClassRedefineCache = new HashMap<>(classRedefineCache);
+                RuntimeReloadFileAccess reloadAccess = new RuntimeReloadFileAccess(classRedefineCache, thisClassRedefineCache, redefine, outputInterface);
+                Transform.runTransformers(new SimpleTransformerContext(
+                        $ -> {}, true, false, false
+                ), classpathProvider, entry.getPath().toString(), reloadAccess, entry.getTransformers());
+                classRedefineCache.putAll(thisClassRedefineCache);
+                TransformerMetrics.INSTANCE.recordCacheHits(entry.getPath().toString(), reloadAccess.getUnchangedClasses());
+                if (debugOut != null && TransformerAgent.getInstrumentation().isRedefineClassesSupported()) {
+                    for (Map.Entry<String, byte[]> redefineEntry : redefine.entrySet()) {
+                        debugOut.modifyFile(redefineEntry.getKey() + ".class", redefineEntry.getValue());
+                    }
+                }
+            }
+            return redefine;
+        }
+    }
+    
     private static class PathWithTransformersEntry {
         private final Path path;
         private final File file;